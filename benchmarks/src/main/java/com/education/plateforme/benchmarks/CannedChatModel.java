@@ -0,0 +1,62 @@
+package com.education.plateforme.benchmarks;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.List;
+
+/**
+ * Modèle de chat de substitution : renvoie toujours la même réponse JSON de quiz,
+ * entourée des balises markdown que Mistral ajoute parfois, après un délai
+ * simulant la latence du fournisseur
+ */
+public class CannedChatModel implements ChatModel {
+
+    private final String response;
+    private final long latencyMillis;
+
+    public CannedChatModel(int questions) {
+        this(questions, 0);
+    }
+
+    public CannedChatModel(int questions, long latencyMillis) {
+        this.response = "```json\n" + quizJson(questions) + "\n```";
+        this.latencyMillis = latencyMillis;
+    }
+
+    public String getResponse() {
+        return response;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(response))));
+    }
+
+    static String quizJson(int questions) {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < questions; i++) {
+            if (i > 0) {
+                json.append(",\n");
+            }
+            json.append("  {\n")
+                    .append("    \"question\": \"Quelle est la complexité de l'opération ").append(i).append(" sur une liste chaînée ?\",\n")
+                    .append("    \"options\": [\"O(1)\", \"O(log n)\", \"O(n)\", \"O(n²)\"],\n")
+                    .append("    \"correctOptionIndex\": ").append(i % 4).append(",\n")
+                    .append("    \"explanation\": \"Le parcours d'une liste chaînée visite chaque élément une fois : ")
+                    .append("l'accès au i-ème élément impose de suivre i pointeurs depuis la tête.\"\n")
+                    .append("  }");
+        }
+        return json.append("\n]").toString();
+    }
+}
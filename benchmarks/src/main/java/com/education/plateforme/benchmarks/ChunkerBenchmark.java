@@ -0,0 +1,69 @@
+package com.education.plateforme.benchmarks;
+
+import com.education.plateforme.rag.SentenceChunker;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Découpage de contenus de plusieurs Mo : ancien splitIntoChunks contre SentenceChunker.
+ *
+ * Lancer avec le profileur GC pour comparer les allocations :
+ * java -jar target/benchmarks.jar ChunkerBenchmark -prof gc
+ * (gc.alloc.rate.norm = octets alloués par découpage complet)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class ChunkerBenchmark {
+
+    // Taille du contenu en millions de caractères
+    @Param({"1", "4", "16"})
+    public int megaChars;
+
+    private String content;
+    private SentenceChunker chunker;
+
+    @Setup
+    public void setUp() {
+        content = CourseTextGenerator.generate(megaChars * 1_000_000, true, 42);
+        // 500 caractères (ancienne taille) correspondent à environ 128 tokens estimés
+        chunker = new SentenceChunker(128, 0);
+    }
+
+    @Benchmark
+    public List<String> legacySplit() {
+        return LegacyChunker.splitIntoChunks(content, 500);
+    }
+
+    @Benchmark
+    public List<String> sentenceChunkerSplit() {
+        return chunker.split(content);
+    }
+
+    /**
+     * Consommation à la demande : aucun chunk n'est conservé
+     */
+    @Benchmark
+    public void sentenceChunkerStreaming(Blackhole blackhole) {
+        Iterator<String> chunks = chunker.iterator(content);
+        while (chunks.hasNext()) {
+            blackhole.consume(chunks.next());
+        }
+    }
+
+    @Benchmark
+    public void sentenceChunkerReader(Blackhole blackhole) {
+        Iterator<String> chunks = chunker.iterator(new StringReader(content));
+        while (chunks.hasNext()) {
+            blackhole.consume(chunks.next());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.education.plateforme.benchmarks;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gestionnaire de transactions de substitution qui compte les transactions
+ * ouvertes simultanément : chacune tiendrait une connexion du pool JDBC.
+ * Une transaction ouverte dans une autre sur le même thread la rejoint
+ * (propagation REQUIRED) et n'est pas comptée deux fois.
+ */
+final class CountingTransactionManager implements PlatformTransactionManager {
+
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+    private final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public TransactionStatus getTransaction(TransactionDefinition definition) {
+        boolean outermost = depth.get()[0]++ == 0;
+        if (outermost) {
+            peak.accumulateAndGet(open.incrementAndGet(), Math::max);
+        }
+        return new SimpleTransactionStatus(outermost);
+    }
+
+    @Override
+    public void commit(TransactionStatus status) {
+        end();
+    }
+
+    @Override
+    public void rollback(TransactionStatus status) {
+        end();
+    }
+
+    private void end() {
+        if (--depth.get()[0] == 0) {
+            open.decrementAndGet();
+        }
+    }
+
+    int peak() {
+        return peak.get();
+    }
+
+    void resetPeak() {
+        peak.set(open.get());
+    }
+}
@@ -0,0 +1,117 @@
+package com.education.plateforme.benchmarks;
+
+import com.education.plateforme.rag.LexicalIndex;
+import com.education.plateforme.rag.MappedVectorStore;
+import com.education.plateforme.rag.RankFusion;
+import com.education.plateforme.rag.SentenceChunker;
+import com.education.plateforme.rag.TextTokenizer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recherche dans l'index d'un cours de 1k, 10k et 100k chunks, comme RAGService :
+ * vectorielle (embedding de la requête compris), BM25 seule, puis hybride (fusion RRF).
+ *
+ * Les embeddings viennent de HashingEmbeddingModel : les résultats sont
+ * reproductibles et le temps mesuré est celui de la recherche, pas de l'inférence.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g", "--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class CourseSearchBenchmark {
+
+    private static final int DIMENSIONS = 384;
+    private static final int TOP_K = 5;
+    private static final int RRF_K = 60;
+    private static final String QUERY = "complexité d'un algorithme récursif sur un arbre concept42";
+
+    @Param({"1000", "10000", "100000"})
+    public int chunks;
+
+    private Path file;
+    private MappedVectorStore store;
+    private LexicalIndex lexicalIndex;
+    private HashingEmbeddingModel embeddingModel;
+    private SearchRequest request;
+    private float[] queryVector;
+    private float[] scores;
+
+    @Setup
+    public void setUp() throws IOException {
+        embeddingModel = new HashingEmbeddingModel(DIMENSIONS);
+        Random random = new Random(42);
+        SentenceChunker chunker = new SentenceChunker(128, 1);
+        Iterator<String> generated = chunker.iterator(CourseTextGenerator.generate(chunks * 520, false, 42));
+
+        long[] chunkIds = new long[chunks];
+        int[] chunkIndexes = new int[chunks];
+        List<String> texts = new ArrayList<>(chunks);
+        List<float[]> embeddings = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            if (!generated.hasNext()) {
+                generated = chunker.iterator(CourseTextGenerator.generate(chunks * 520, false, 42 + i));
+            }
+            // Quelques termes rares par chunk, comme les noms d'API ou de notions d'un vrai cours
+            String text = generated.next() + " concept" + random.nextInt(chunks) + " api" + random.nextInt(chunks);
+            chunkIds[i] = i + 1;
+            chunkIndexes[i] = i;
+            texts.add(text);
+            embeddings.add(embeddingModel.embed(text));
+        }
+
+        file = Files.createTempFile("course-search-", ".idx");
+        MappedVectorStore.write(file, 1L, "benchmark", DIMENSIONS, chunkIds, chunkIndexes, texts, embeddings);
+        store = MappedVectorStore.open(embeddingModel, file);
+        lexicalIndex = LexicalIndex.build(store.size(), store::text);
+        request = SearchRequest.builder().query(QUERY).topK(TOP_K).build();
+        queryVector = embeddingModel.embed(QUERY);
+        scores = new float[TOP_K];
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Embedding de la requête + parcours exact de l'index
+     */
+    @Benchmark
+    public List<Document> vectorSearch() {
+        return store.similaritySearch(request);
+    }
+
+    /**
+     * Parcours seul, vecteur de requête déjà calculé
+     */
+    @Benchmark
+    public int[] vectorScan() {
+        return store.search(queryVector, TOP_K, 0.0, scores);
+    }
+
+    @Benchmark
+    public int[] lexicalSearch() {
+        return lexicalIndex.search(TextTokenizer.queryTerms(QUERY), TOP_K, null);
+    }
+
+    @Benchmark
+    public int[] hybridSearch() {
+        int candidates = TOP_K * 4;
+        int[] lexical = lexicalIndex.search(TextTokenizer.queryTerms(QUERY), candidates, null);
+        int[] semantic = store.search(embeddingModel.embed(QUERY), candidates, 0.0, null);
+        return RankFusion.reciprocalRank(RRF_K, TOP_K, semantic, lexical);
+    }
+}
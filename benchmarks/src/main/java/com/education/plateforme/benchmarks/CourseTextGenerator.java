@@ -0,0 +1,51 @@
+package com.education.plateforme.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Contenu de cours synthétique : paragraphes de phrases françaises de longueur variable
+ */
+public final class CourseTextGenerator {
+
+    private static final String[] WORDS = {
+            "le", "la", "les", "un", "une", "des", "algorithme", "structure", "données", "complexité",
+            "fonction", "variable", "boucle", "récursivité", "tableau", "liste", "arbre", "graphe",
+            "mémoire", "processeur", "compilation", "exécution", "programme", "classe", "objet",
+            "méthode", "interface", "héritage", "polymorphisme", "exception", "thread", "verrou",
+            "est", "sont", "permet", "utilise", "contient", "définit", "calcule", "renvoie",
+            "rapidement", "efficacement", "toujours", "souvent", "dans", "avec", "pour", "sur", "par"
+    };
+
+    private static final String[] ENDINGS = {". ", ". ", ". ", "? ", "! "};
+
+    private CourseTextGenerator() {
+        // empêche l'instanciation
+    }
+
+    /**
+     * Génère environ sizeInChars caractères, avec des fins de ligne Windows si crlf
+     */
+    public static String generate(int sizeInChars, boolean crlf, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(sizeInChars + 256);
+        String paragraphBreak = crlf ? "\r\n\r\n" : "\n\n";
+        while (text.length() < sizeInChars) {
+            int sentences = 2 + random.nextInt(6);
+            for (int s = 0; s < sentences; s++) {
+                int words = 6 + random.nextInt(25);
+                for (int w = 0; w < words; w++) {
+                    String word = WORDS[random.nextInt(WORDS.length)];
+                    if (w == 0) {
+                        text.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+                    } else {
+                        text.append(' ').append(word);
+                    }
+                }
+                text.append(ENDINGS[random.nextInt(ENDINGS.length)].trim());
+                text.append(random.nextInt(8) == 0 ? (crlf ? "\r\n" : "\n") : " ");
+            }
+            text.append(paragraphBreak);
+        }
+        return text.toString();
+    }
+}
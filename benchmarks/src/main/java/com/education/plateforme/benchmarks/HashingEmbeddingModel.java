@@ -0,0 +1,75 @@
+package com.education.plateforme.benchmarks;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Modèle d'embedding de substitution, déterministe et sans inférence : chaque mot
+ * est projeté par hachage sur une dimension (signe ±1), puis le vecteur est normalisé.
+ * Deux textes partageant des mots restent proches, ce qui suffit à mesurer la recherche.
+ */
+public class HashingEmbeddingModel implements EmbeddingModel {
+
+    private final int dimensions;
+
+    public HashingEmbeddingModel(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        int hash = 0;
+        int length = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? Character.toLowerCase(text.charAt(i)) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                hash = 31 * hash + c;
+                length++;
+                continue;
+            }
+            if (length > 0) {
+                int mixed = hash * 0x9E3779B9;
+                vector[Math.floorMod(mixed, dimensions)] += (mixed & 0x10000) == 0 ? 1f : -1f;
+                hash = 0;
+                length = 0;
+            }
+        }
+        float norm = 0f;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = (float) Math.sqrt(norm);
+        if (norm > 0f) {
+            for (int d = 0; d < dimensions; d++) {
+                vector[d] /= norm;
+            }
+        }
+        return vector;
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<Embedding> embeddings = new ArrayList<>(request.getInstructions().size());
+        for (int i = 0; i < request.getInstructions().size(); i++) {
+            embeddings.add(new Embedding(embed(request.getInstructions().get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+}
@@ -0,0 +1,43 @@
+package com.education.plateforme.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ancien découpage de RAGService (regex + split sur look-behind), conservé
+ * tel quel comme référence des benchmarks
+ */
+public final class LegacyChunker {
+
+    private LegacyChunker() {
+        // empêche l'instanciation
+    }
+
+    public static List<String> splitIntoChunks(String text, int chunkSize) {
+        List<String> chunks = new ArrayList<>();
+
+        text = text.replaceAll("\\r\\n", "\n").replaceAll("\\r", "\n");
+
+        String[] sentences = text.split("(?<=[.!?])\\s+");
+
+        StringBuilder currentChunk = new StringBuilder();
+
+        for (String sentence : sentences) {
+            if (currentChunk.length() + sentence.length() > chunkSize && currentChunk.length() > 0) {
+                chunks.add(currentChunk.toString().trim());
+                currentChunk = new StringBuilder();
+            }
+            currentChunk.append(sentence).append(" ");
+        }
+
+        if (currentChunk.length() > 0) {
+            chunks.add(currentChunk.toString().trim());
+        }
+
+        if (chunks.isEmpty() && !text.trim().isEmpty()) {
+            chunks.add(text.trim());
+        }
+
+        return chunks;
+    }
+}
@@ -0,0 +1,107 @@
+package com.education.plateforme.benchmarks;
+
+import com.education.plateforme.service.LlmCallScheduler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 300 étudiants qui demandent un quiz en même temps, face à un fournisseur qui
+ * n'accepte que providerCapacity appels simultanés et répond 429 au-delà.
+ *
+ * maxConcurrent=300 revient à ne pas limiter les appels : la plupart reçoivent
+ * un 429 et ne passent qu'après plusieurs relances, voire échouent. Avec une
+ * limite égale à la capacité du fournisseur, les demandes attendent leur tour
+ * dans la file et aucune n'est refusée. Les 429 reçus, les échecs et l'état de
+ * l'ordonnanceur sont affichés à la fin de chaque itération.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(300)
+@State(Scope.Benchmark)
+public class LlmCallSchedulerBenchmark {
+
+    @Param({"4", "300"})
+    public int maxConcurrent;
+
+    @Param({"4"})
+    public int providerCapacity;
+
+    @Param({"200"})
+    public long latencyMillis;
+
+    private LlmCallScheduler scheduler;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    @State(Scope.Thread)
+    public static class Student {
+
+        private static final AtomicInteger IDS = new AtomicInteger();
+
+        LlmCallScheduler.Caller caller;
+
+        @Setup
+        public void setUp() {
+            caller = new LlmCallScheduler.Caller("student-" + IDS.incrementAndGet(), LlmCallScheduler.Priority.INTERACTIVE);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        scheduler = new LlmCallScheduler();
+        StandIns.inject(scheduler, "maxConcurrent", maxConcurrent);
+        StandIns.inject(scheduler, "queueTimeoutMillis", 60_000L);
+        StandIns.inject(scheduler, "backgroundQueueTimeoutMillis", 600_000L);
+        StandIns.inject(scheduler, "maxRetries", 4);
+        StandIns.inject(scheduler, "backoffInitialMillis", 200L);
+        StandIns.inject(scheduler, "backoffMaxMillis", 5_000L);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        rateLimited.set(0);
+        failures.set(0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        System.out.println("\n429 reçus : " + rateLimited.get() + ", demandes en échec : " + failures.get()
+                + " (maxConcurrent=" + maxConcurrent + ")\n" + scheduler.getStats());
+    }
+
+    @Benchmark
+    public String requestQuiz(Student student) {
+        try {
+            return scheduler.call(student.caller, this::provider);
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Fournisseur de substitution : au-delà de sa capacité, refus immédiat comme l'API Mistral
+     */
+    private String provider() {
+        try {
+            if (inFlight.incrementAndGet() > providerCapacity) {
+                rateLimited.incrementAndGet();
+                throw new IllegalStateException("429 - {\"message\":\"Requests rate limit exceeded\"}");
+            }
+            Thread.sleep(latencyMillis);
+            return "[]";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.education.plateforme.benchmarks;
+
+import com.education.plateforme.dto.QuizQuestionDTO;
+import com.education.plateforme.model.Quiz;
+import com.education.plateforme.model.QuizQuestion;
+import com.education.plateforme.repository.QuizRepository;
+import com.education.plateforme.service.QuizGenerationService;
+import com.education.plateforme.service.QuizService;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chemins chauds des quiz hors base et hors LLM : lecture de la réponse JSON du
+ * modèle (QuizGenerationService.parseQuizResponse) et correction d'une copie
+ * (QuizService.submitQuiz), avec un ChatModel et un QuizRepository de substitution.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuizBenchmark {
+
+    @Param({"5", "20"})
+    public int questions;
+
+    private String response;
+    private QuizGenerationService generationService;
+    private MethodHandle parseQuizResponse;
+    private QuizService quizService;
+    private Map<Long, Integer> answers;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        CannedChatModel chatModel = new CannedChatModel(questions);
+        response = chatModel.getResponse();
+        generationService = StandIns.inject(new QuizGenerationService(), "chatModel", chatModel);
+        parseQuizResponse = MethodHandles.privateLookupIn(QuizGenerationService.class, MethodHandles.lookup())
+                .findVirtual(QuizGenerationService.class, "parseQuizResponse",
+                        MethodType.methodType(List.class, String.class));
+
+        Quiz quiz = new Quiz();
+        quiz.setId(1L);
+        List<QuizQuestion> quizQuestions = new ArrayList<>();
+        answers = new HashMap<>();
+        for (int i = 0; i < questions; i++) {
+            QuizQuestion question = new QuizQuestion();
+            question.setId((long) i + 1);
+            question.setQuiz(quiz);
+            question.setQuestionText("Question " + i);
+            question.setOptions(List.of("A", "B", "C", "D"));
+            question.setCorrectOptionIndex(i % 4);
+            quizQuestions.add(question);
+            answers.put((long) i + 1, (i * 7) % 4);
+        }
+        quiz.setQuestions(quizQuestions);
+        quizService = StandIns.inject(new QuizService(), "quizRepository", inMemoryRepository(quiz));
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<QuizQuestionDTO> parseQuizResponse() throws Throwable {
+        return (List<QuizQuestionDTO>) parseQuizResponse.invoke(generationService, response);
+    }
+
+    @Benchmark
+    public Quiz submitQuiz() {
+        return quizService.submitQuiz(1L, answers);
+    }
+
+    /**
+     * Dépôt de substitution : renvoie toujours la même copie, remise à l'état non soumis
+     */
+    private static QuizRepository inMemoryRepository(Quiz quiz) {
+        return (QuizRepository) Proxy.newProxyInstance(QuizRepository.class.getClassLoader(),
+                new Class<?>[] { QuizRepository.class }, (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> {
+                        quiz.setCompleted(false);
+                        yield Optional.of(quiz);
+                    }
+                    case "save" -> args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryQuizRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
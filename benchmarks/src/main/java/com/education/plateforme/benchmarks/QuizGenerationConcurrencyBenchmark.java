@@ -0,0 +1,130 @@
+package com.education.plateforme.benchmarks;
+
+import com.education.plateforme.dto.QuizDTO;
+import com.education.plateforme.model.Course;
+import com.education.plateforme.model.Quiz;
+import com.education.plateforme.model.User;
+import com.education.plateforme.repository.QuizRepository;
+import com.education.plateforme.service.LlmCallScheduler;
+import com.education.plateforme.service.QuizGenerationService;
+import com.education.plateforme.service.RAGService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connexions tenues par 100 générations de quiz simultanées, avec un modèle de
+ * chat qui répond en latencyMillis et un gestionnaire de transactions qui compte
+ * les transactions ouvertes (une transaction ouverte = une connexion du pool).
+ *
+ * enclosingTransaction=true reproduit l'ancien fonctionnement (toute la
+ * génération dans une transaction) : le pic suit le nombre de générations en
+ * cours. Sans elle, seules les phases de lecture et d'écriture en tiennent une,
+ * et le pic affiché à la fin de chaque itération reste de quelques connexions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(100)
+@State(Scope.Benchmark)
+public class QuizGenerationConcurrencyBenchmark {
+
+    @Param({"false", "true"})
+    public boolean enclosingTransaction;
+
+    @Param({"500"})
+    public long latencyMillis;
+
+    private QuizGenerationService generationService;
+    private CountingTransactionManager transactionManager;
+    private TransactionTemplate enclosing;
+    private Course course;
+    private User student;
+
+    @Setup
+    public void setUp() {
+        transactionManager = new CountingTransactionManager();
+        enclosing = new TransactionTemplate(transactionManager);
+        generationService = new QuizGenerationService();
+        StandIns.inject(generationService, "chatModel", new CannedChatModel(7, latencyMillis));
+        StandIns.inject(generationService, "ragService", new ContextStandIn(transactionManager));
+        StandIns.inject(generationService, "quizRepository", inMemoryRepository());
+        StandIns.inject(generationService, "transactionManager", transactionManager);
+        // Aucune attente dans l'ordonnanceur : seules les connexions sont mesurées ici
+        LlmCallScheduler scheduler = new LlmCallScheduler();
+        StandIns.inject(scheduler, "maxConcurrent", 100);
+        StandIns.inject(scheduler, "queueTimeoutMillis", 60_000L);
+        StandIns.inject(generationService, "llmCallScheduler", scheduler);
+        StandIns.initialize(generationService, "initTransactionTemplate");
+
+        course = new Course();
+        course.setId(1L);
+        course.setTitle("Structures de données");
+        student = new User();
+        student.setId(1L);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeak() {
+        transactionManager.resetPeak();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportPeak() {
+        System.out.println("\nConnexions tenues au plus pendant l'itération : " + transactionManager.peak()
+                + " (enclosingTransaction=" + enclosingTransaction + ")");
+    }
+
+    @Benchmark
+    public QuizDTO generateQuiz() {
+        if (enclosingTransaction) {
+            return enclosing.execute(status -> generate());
+        }
+        return generate();
+    }
+
+    private QuizDTO generate() {
+        return generationService.generateQuiz(course, student, "MEDIUM", 7, 21);
+    }
+
+    /**
+     * Contexte de cours fixe, lu dans une transaction courte comme RAGService.getCourseContext
+     */
+    private static final class ContextStandIn extends RAGService {
+
+        private final TransactionTemplate transaction;
+
+        ContextStandIn(CountingTransactionManager transactionManager) {
+            this.transaction = new TransactionTemplate(transactionManager);
+        }
+
+        @Override
+        public String getCourseContext(Course course) {
+            return transaction.execute(status -> CourseTextGenerator.generate(10_000, false, 42));
+        }
+    }
+
+    /**
+     * Dépôt de substitution : attribue un identifiant et renvoie le quiz
+     */
+    private static QuizRepository inMemoryRepository() {
+        AtomicLong ids = new AtomicLong();
+        return (QuizRepository) Proxy.newProxyInstance(QuizRepository.class.getClassLoader(),
+                new Class<?>[] { QuizRepository.class }, (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> {
+                        Quiz quiz = (Quiz) args[0];
+                        quiz.setId(ids.incrementAndGet());
+                        yield quiz;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryQuizRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
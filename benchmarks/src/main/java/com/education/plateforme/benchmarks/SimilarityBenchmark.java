@@ -0,0 +1,111 @@
+package com.education.plateforme.benchmarks;
+
+import com.education.plateforme.rag.SimilarityKernel;
+import com.education.plateforme.rag.VectorSearch;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recherche exacte top-10 sur un index hors tas (comme le fichier projeté) :
+ * ancienne boucle (lecture flottant par flottant + PriorityQueue) contre
+ * VectorSearch avec noyau scalaire puis SIMD.
+ *
+ * Le noyau SIMD n'est mesuré que si le module est chargé (voir jvmArgs).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class SimilarityBenchmark {
+
+    // all-MiniLM-L6-v2 : 384 ; modèles plus grands : 768
+    @Param({"384", "768"})
+    public int dimensions;
+
+    // Chunks d'un gros cours, puis de plusieurs cours réunis
+    @Param({"10000", "100000"})
+    public int chunks;
+
+    private static final int TOP_K = 10;
+
+    private FloatBuffer vectors;
+    private float[] query;
+    private float[] scores;
+    private SimilarityKernel scalar;
+    private SimilarityKernel vectorized;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        ByteBuffer data = ByteBuffer.allocateDirect(chunks * dimensions * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < chunks; i++) {
+            normalizedGaussian(random, vector);
+            for (float value : vector) {
+                data.putFloat(value);
+            }
+        }
+        data.flip();
+        vectors = data.asFloatBuffer();
+        query = new float[dimensions];
+        normalizedGaussian(random, query);
+        scores = new float[TOP_K];
+        scalar = SimilarityKernel.scalar();
+        vectorized = SimilarityKernel.vectorized() != null ? SimilarityKernel.vectorized() : scalar;
+    }
+
+    @Benchmark
+    public int[] legacyScan() {
+        PriorityQueue<int[]> heap = new PriorityQueue<>(TOP_K + 1,
+                Comparator.comparingDouble(entry -> Float.intBitsToFloat(entry[1])));
+        for (int i = 0; i < chunks; i++) {
+            int offset = i * dimensions;
+            float score = 0f;
+            for (int d = 0; d < dimensions; d++) {
+                score += query[d] * vectors.get(offset + d);
+            }
+            if (heap.size() < TOP_K) {
+                heap.add(new int[] { i, Float.floatToRawIntBits(score) });
+            } else if (score > Float.intBitsToFloat(heap.peek()[1])) {
+                heap.poll();
+                heap.add(new int[] { i, Float.floatToRawIntBits(score) });
+            }
+        }
+        int[] result = new int[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = heap.poll()[0];
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int[] scalarKernel() {
+        return VectorSearch.topK(scalar, vectors, chunks, dimensions, query, TOP_K, -Float.MAX_VALUE, scores);
+    }
+
+    @Benchmark
+    public int[] simdKernel() {
+        return VectorSearch.topK(vectorized, vectors, chunks, dimensions, query, TOP_K, -Float.MAX_VALUE, scores);
+    }
+
+    private static void normalizedGaussian(Random random, float[] vector) {
+        float norm = 0f;
+        for (int d = 0; d < vector.length; d++) {
+            vector[d] = (float) random.nextGaussian();
+            norm += vector[d] * vector[d];
+        }
+        norm = (float) Math.sqrt(norm);
+        for (int d = 0; d < vector.length; d++) {
+            vector[d] /= norm;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.education.plateforme.benchmarks;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * Injection des substituts dans les services, sans contexte Spring : les
+ * services utilisent l'injection par champ (@Autowired)
+ */
+final class StandIns {
+
+    private StandIns() {
+        // empêche l'instanciation
+    }
+
+    static <T> T inject(T target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+            return target;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Injection de " + fieldName + " impossible", e);
+        }
+    }
+
+    /**
+     * Appelle une méthode d'initialisation sans argument (@PostConstruct)
+     */
+    static <T> T initialize(T target, String methodName) {
+        try {
+            Method method = target.getClass().getDeclaredMethod(methodName);
+            method.setAccessible(true);
+            method.invoke(target);
+            return target;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Initialisation par " + methodName + " impossible", e);
+        }
+    }
+}
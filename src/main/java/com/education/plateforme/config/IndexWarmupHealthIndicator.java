@@ -0,0 +1,31 @@
+package com.education.plateforme.config;
+
+import com.education.plateforme.service.IndexWarmupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Indicateur "ragWarmup", inclus dans le groupe readiness : /actuator/health/readiness
+ * répond 503 (OUT_OF_SERVICE) tant que les index des cours les plus utilisés ne sont pas chargés.
+ */
+@Component("ragWarmup")
+public class IndexWarmupHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private IndexWarmupService indexWarmupService;
+
+    @Override
+    public Health health() {
+        IndexWarmupService.WarmupStatus status = indexWarmupService.getStatus();
+        Health.Builder builder = status.ready() ? Health.up() : Health.outOfService();
+        return builder
+                .withDetail("state", status.state())
+                .withDetail("loaded", status.loaded())
+                .withDetail("failed", status.failed())
+                .withDetail("total", status.total())
+                .withDetail("elapsedMillis", status.elapsedMillis())
+                .build();
+    }
+}
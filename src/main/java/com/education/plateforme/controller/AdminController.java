@@ -2,10 +2,19 @@ package com.education.plateforme.controller;
 
 import com.education.plateforme.model.Course;
 import com.education.plateforme.model.User;
+import com.education.plateforme.rag.QuantizationReport;
+import com.education.plateforme.rag.SearchResultCache;
+import com.education.plateforme.rag.SnapshotCache;
 import com.education.plateforme.service.CourseService;
+import com.education.plateforme.service.GlobalVectorIndexService;
+import com.education.plateforme.service.IndexWarmupService;
+import com.education.plateforme.service.IndexingJobService;
+import com.education.plateforme.service.LlmCallScheduler;
+import com.education.plateforme.service.QuizPoolService;
 import com.education.plateforme.service.RAGService;
 import com.education.plateforme.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -13,6 +22,9 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
 
 @Controller
 @RequestMapping("/admin")
@@ -27,6 +39,21 @@ public class AdminController {
     @Autowired
     private RAGService ragService;
 
+    @Autowired
+    private GlobalVectorIndexService globalVectorIndexService;
+
+    @Autowired
+    private IndexingJobService indexingJobService;
+
+    @Autowired
+    private IndexWarmupService indexWarmupService;
+
+    @Autowired
+    private QuizPoolService quizPoolService;
+
+    @Autowired
+    private LlmCallScheduler llmCallScheduler;
+
     @GetMapping("/dashboard")
     public String dashboard(Model model, Authentication authentication) {
         String username = authentication.getName();
@@ -54,6 +81,7 @@ public class AdminController {
     @GetMapping("/courses")
     public String listCourses(Model model) {
         model.addAttribute("courses", courseService.getAllCourses());
+        model.addAttribute("dedupStats", ragService.getDedupStats());
         return "admin/courses";
     }
 
@@ -89,10 +117,9 @@ public class AdminController {
     @GetMapping("/courses/index/{id}")
     public String indexCourse(@PathVariable Long id, RedirectAttributes redirectAttributes) {
         try {
-            Course course = courseService.getCourseById(id)
-                    .orElseThrow(() -> new RuntimeException("Cours non trouvé"));
-            ragService.indexCourse(course);
-            redirectAttributes.addFlashAttribute("success", "Cours indexé avec succès pour le système RAG");
+            IndexingJobService.JobStatus job = indexingJobService.submit(id);
+            redirectAttributes.addFlashAttribute("success", "Indexation du cours lancée en arrière-plan");
+            redirectAttributes.addFlashAttribute("indexJobId", job.jobId());
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Erreur lors de l'indexation : " + e.getMessage());
         }
@@ -247,4 +274,83 @@ public class AdminController {
         }
         return "redirect:/admin/students";
     }
-}
\ No newline at end of file
+
+    // ========== SUPERVISION RAG ==========
+
+    @GetMapping("/rag/cache")
+    @ResponseBody
+    public SnapshotCache.Stats indexCacheStats() {
+        return ragService.getIndexCacheStats();
+    }
+
+    @GetMapping("/rag/warmup")
+    @ResponseBody
+    public IndexWarmupService.WarmupStatus warmupStatus() {
+        return indexWarmupService.getStatus();
+    }
+
+    @GetMapping("/quiz-pool")
+    @ResponseBody
+    public QuizPoolService.PoolStats quizPoolStats() {
+        return quizPoolService.getStats();
+    }
+
+    @GetMapping("/llm-scheduler")
+    @ResponseBody
+    public LlmCallScheduler.SchedulerStats llmSchedulerStats() {
+        return llmCallScheduler.getStats();
+    }
+
+    @GetMapping("/rag/search-cache")
+    @ResponseBody
+    public SearchResultCache.Stats searchCacheStats() {
+        return ragService.getSearchCacheStats();
+    }
+
+    @GetMapping("/rag/ann/recall")
+    @ResponseBody
+    public GlobalVectorIndexService.RecallReport annRecall(@RequestParam String query,
+                                                           @RequestParam(defaultValue = "10") int topK,
+                                                           @RequestParam(required = false) Long courseId,
+                                                           @RequestParam(required = false) Integer efSearch) {
+        return globalVectorIndexService.measureRecall(query, topK, courseId == null ? null : List.of(courseId), efSearch);
+    }
+
+    @GetMapping("/rag/quantization")
+    @ResponseBody
+    public List<QuantizationReport.Row> quantizationReport(@RequestParam Long courseId,
+                                                           @RequestParam(required = false) String query,
+                                                           @RequestParam(defaultValue = "10") int topK,
+                                                           @RequestParam(defaultValue = "50") int sampleSize) {
+        Course course = courseService.getCourseById(courseId)
+                .orElseThrow(() -> new RuntimeException("Cours non trouvé"));
+        return ragService.getQuantizationReport(course, query, topK, sampleSize);
+    }
+
+    @PostMapping("/rag/jobs")
+    @ResponseBody
+    public ResponseEntity<?> submitIndexingJob(@RequestParam Long courseId) {
+        try {
+            return ResponseEntity.accepted().body(indexingJobService.submit(courseId));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            // File d'indexation pleine : réessayer plus tard
+            return ResponseEntity.status(503).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/rag/jobs")
+    @ResponseBody
+    public List<IndexingJobService.JobStatus> indexingJobs() {
+        return indexingJobService.getRecentJobs();
+    }
+
+    @GetMapping("/rag/jobs/{jobId}")
+    @ResponseBody
+    public ResponseEntity<IndexingJobService.JobStatus> indexingJobStatus(@PathVariable String jobId) {
+        return indexingJobService.getStatus(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -1,32 +1,32 @@
 package com.education.plateforme.controller;
 
-import com.education.plateforme.dto.QuizDTO;
 import com.education.plateforme.dto.QuizGenerationRequest;
 import com.education.plateforme.dto.QuizSubmissionDTO;
 import com.education.plateforme.model.Course;
 import com.education.plateforme.model.Quiz;
 import com.education.plateforme.model.User;
-import com.education.plateforme.service.AIAgentService;
 import com.education.plateforme.service.CourseService;
+import com.education.plateforme.service.QuizJobService;
 import com.education.plateforme.service.QuizService;
+import com.education.plateforme.service.QuizStreamService;
 import com.education.plateforme.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @Controller
 @RequestMapping("/student/quiz")
 public class QuizController {
 
-    @Autowired
-    private AIAgentService aiAgentService;
-
     @Autowired
     private QuizService quizService;
 
@@ -36,8 +36,15 @@ public class QuizController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private QuizStreamService quizStreamService;
+
+    @Autowired
+    private QuizJobService quizJobService;
+
     /**
-     * Génère un nouveau quiz avec l'agent IA
+     * Lance la génération d'un nouveau quiz avec l'agent IA et renvoie aussitôt la tâche
+     * (202) ; le quiz se récupère par /jobs/{jobId} ou /jobs/{jobId}/events
      */
     @PostMapping("/generate")
     @ResponseBody
@@ -45,7 +52,10 @@ public class QuizController {
                                          Authentication authentication) {
         try {
             User student = userService.getUserByUsername(authentication.getName()).orElseThrow();
-            Course course = courseService.getCourseById(request.getCourseId()).orElseThrow();
+            Course course = courseService.getCourseById(request.getCourseId()).orElse(null);
+            if (course == null) {
+                return ResponseEntity.status(404).body(Map.of("error", "Cours non trouvé"));
+            }
 
             // Vérifier que l'étudiant est inscrit
             if (!courseService.isStudentEnrolled(course.getId(), student)) {
@@ -54,12 +64,16 @@ public class QuizController {
 
             System.out.println("🚀 Génération du quiz pour le cours: " + course.getTitle());
 
-            // Générer le quiz avec l'agent IA
-            QuizDTO quizDTO = aiAgentService.generateAdaptiveQuiz(course, student);
+            // Générer le quiz avec l'agent IA, hors du thread de la requête
+            QuizJobService.JobStatus job = quizJobService.submit(course, student);
 
-            System.out.println("✅ Quiz généré avec succès - ID: " + quizDTO.getQuizId());
+            System.out.println("📥 Quiz planifié - tâche: " + job.jobId());
 
-            return ResponseEntity.ok(quizDTO);
+            return ResponseEntity.accepted().body(job);
+        } catch (RejectedExecutionException e) {
+            // File de génération pleine : le client peut réessayer plus tard
+            System.err.println("❌ Génération de quiz refusée: " + e.getMessage());
+            return ResponseEntity.status(503).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             System.err.println("❌ ERREUR génération quiz: " + e.getMessage());
             e.printStackTrace();
@@ -67,6 +81,71 @@ public class QuizController {
         }
     }
 
+    /**
+     * État d'une tâche de génération (quizId renseigné une fois le quiz prêt)
+     */
+    @GetMapping("/jobs/{jobId}")
+    @ResponseBody
+    public ResponseEntity<?> quizJobStatus(@PathVariable String jobId, Authentication authentication) {
+        User student = userService.getUserByUsername(authentication.getName()).orElseThrow();
+        return quizJobService.getStatus(jobId, student)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(404).body(Map.of("error", "Tâche non trouvée")));
+    }
+
+    /**
+     * Résultat d'une tâche de génération en flux SSE (événements state, puis done ou failed)
+     */
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter quizJobEvents(@PathVariable String jobId, Authentication authentication) {
+        User student = userService.getUserByUsername(authentication.getName()).orElseThrow();
+        return quizJobService.subscribe(jobId, student)
+                .orElseGet(() -> quizStreamService.failed("Tâche non trouvée"));
+    }
+
+    /**
+     * Génère un nouveau quiz en flux SSE : chaque question est envoyée dès qu'elle est prête
+     */
+    @GetMapping(value = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter streamQuiz(@RequestParam Long courseId, Authentication authentication) {
+        User student = userService.getUserByUsername(authentication.getName()).orElseThrow();
+        Course course = courseService.getCourseById(courseId).orElse(null);
+
+        // Vérifier que l'étudiant est inscrit
+        if (course == null || !courseService.isStudentEnrolled(course.getId(), student)) {
+            return quizStreamService.failed("Vous n'êtes pas inscrit à ce cours");
+        }
+
+        System.out.println("🚀 Génération en flux du quiz pour le cours: " + course.getTitle());
+        return quizStreamService.stream(course, student);
+    }
+
+    /**
+     * Affiche la page du quiz avant sa génération : les questions arrivent par le flux SSE
+     */
+    @GetMapping("/take/stream")
+    public String takeStreamedQuiz(@RequestParam Long courseId, Model model, Authentication authentication) {
+        try {
+            User student = userService.getUserByUsername(authentication.getName()).orElseThrow();
+            Course course = courseService.getCourseById(courseId)
+                    .orElseThrow(() -> new RuntimeException("Cours non trouvé"));
+
+            if (!courseService.isStudentEnrolled(course.getId(), student)) {
+                throw new RuntimeException("Accès non autorisé");
+            }
+
+            model.addAttribute("course", course);
+            model.addAttribute("student", student);
+
+            return "student/quiz-take";
+        } catch (Exception e) {
+            System.err.println("❌ Erreur affichage quiz: " + e.getMessage());
+            return "redirect:/student/courses";
+        }
+    }
+
     /**
      * Affiche le quiz interactif
      */
@@ -5,12 +5,14 @@ import com.education.plateforme.model.Quiz;
 import com.education.plateforme.model.User;
 import com.education.plateforme.service.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/student")
@@ -31,6 +33,9 @@ public class StudentController {
     @Autowired
     private AIAgentService aiAgentService;
 
+    @Autowired
+    private StudentSearchService studentSearchService;
+
     @GetMapping("/dashboard")
     public String dashboard(Model model, Authentication authentication) {
         String username = authentication.getName();
@@ -158,5 +163,25 @@ public class StudentController {
         model.addAttribute("quiz", quiz);
         return "student/quiz-result";
     }
-    
-}
\ No newline at end of file
+
+    /**
+     * Recherche dans tous les cours de l'étudiant ; "partial" signale les cours
+     * ignorés (index pas encore chargé à l'échéance, ou erreur)
+     */
+    @GetMapping("/search")
+    @ResponseBody
+    public ResponseEntity<?> search(@RequestParam("q") String query,
+                                    @RequestParam(defaultValue = "10") int topK,
+                                    Authentication authentication) {
+        if (query.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "La requête est vide"));
+        }
+        User student = userService.getUserByUsername(authentication.getName()).orElseThrow();
+        try {
+            return ResponseEntity.ok(studentSearchService.search(student, query, topK));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -26,12 +26,22 @@ public class DocumentChunk {
     @Column(nullable = false)
     private int chunkIndex;
     
-    @Column(columnDefinition = "TEXT")
-    private String embedding; // Stockage JSON du vecteur
+    @Column(name = "content_hash", length = 64)
+    private String contentHash; // SHA-256 du contenu, pour la réindexation incrémentale
+    
+    @Lob
+    @Column(name = "embedding_vector", columnDefinition = "MEDIUMBLOB")
+    private byte[] embedding; // Vecteur encodé via EmbeddingCodec (float32/float16)
+    
+    @Column(name = "embedding_model", length = 100)
+    private String embeddingModel; // Modèle (et version) ayant produit le vecteur
     
     @Column(nullable = false)
     private boolean indexed = false;
 
+    @Column(name = "duplicate_of")
+    private Long duplicateOf; // Chunk représentant d'un quasi-doublon (non indexé, sans vecteur)
+
 	public Long getId() {
 		return id;
 	}
@@ -64,14 +74,30 @@ public class DocumentChunk {
 		this.chunkIndex = chunkIndex;
 	}
 
-	public String getEmbedding() {
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	public void setContentHash(String contentHash) {
+		this.contentHash = contentHash;
+	}
+
+	public byte[] getEmbedding() {
 		return embedding;
 	}
 
-	public void setEmbedding(String embedding) {
+	public void setEmbedding(byte[] embedding) {
 		this.embedding = embedding;
 	}
 
+	public String getEmbeddingModel() {
+		return embeddingModel;
+	}
+
+	public void setEmbeddingModel(String embeddingModel) {
+		this.embeddingModel = embeddingModel;
+	}
+
 	public boolean isIndexed() {
 		return indexed;
 	}
@@ -79,4 +105,12 @@ public class DocumentChunk {
 	public void setIndexed(boolean indexed) {
 		this.indexed = indexed;
 	}
+
+	public Long getDuplicateOf() {
+		return duplicateOf;
+	}
+
+	public void setDuplicateOf(Long duplicateOf) {
+		this.duplicateOf = duplicateOf;
+	}
 }
\ No newline at end of file
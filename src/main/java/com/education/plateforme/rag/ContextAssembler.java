@@ -0,0 +1,157 @@
+package com.education.plateforme.rag;
+
+import java.util.Arrays;
+
+/**
+ * Sélection des chunks d'un cours à placer dans un prompt, sous un budget de tokens.
+ *
+ * Les chunks sont choisis un à un par pertinence marginale maximale (MMR) :
+ * λ · similarité à la requête − (1 − λ) · similarité au chunk déjà retenu le plus proche.
+ * Le contexte couvre ainsi des parties différentes du cours au lieu de répéter
+ * les passages les plus proches de la requête. Les chunks retenus sont rendus
+ * dans l'ordre du cours.
+ */
+public class ContextAssembler {
+
+    private static final SimilarityKernel KERNEL = SimilarityKernel.preferred();
+
+    /**
+     * @param positions       positions retenues dans l'index, dans l'ordre du cours
+     * @param estimatedTokens tokens estimés des textes retenus (séparateurs compris)
+     * @param candidates      chunks examinés
+     */
+    public record Selection(int[] positions, int estimatedTokens, int candidates) {
+    }
+
+    private final int maxTokens;
+    private final double charsPerToken;
+    private final double lambda;
+    private final int candidatePool;
+
+    /**
+     * @param maxTokens     budget de tokens du contexte
+     * @param charsPerToken caractères par token du tokenizer du modèle de chat
+     * @param lambda        1 = pertinence seule, 0 = diversité seule
+     * @param candidatePool chunks examinés au plus (les plus pertinents et un échantillon régulier du cours)
+     */
+    public ContextAssembler(int maxTokens, double charsPerToken, double lambda, int candidatePool) {
+        if (maxTokens < 1 || charsPerToken <= 0 || lambda < 0 || lambda > 1 || candidatePool < 1) {
+            throw new IllegalArgumentException("Paramètres d'assemblage du contexte invalides");
+        }
+        this.maxTokens = maxTokens;
+        this.charsPerToken = charsPerToken;
+        this.lambda = lambda;
+        this.candidatePool = candidatePool;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public int estimateTokens(CharSequence text) {
+        return (int) Math.ceil(text.length() / charsPerToken);
+    }
+
+    /**
+     * @param query vecteur de la requête (thème du cours), ou null : diversité seule
+     */
+    public Selection select(MappedVectorStore store, float[] query) {
+        int dimensions = store.getDimensions();
+        int[] pool = candidates(store, query);
+        int n = pool.length;
+        float[][] rows = new float[n][];
+        float[] relevance = new float[n];
+        int[] tokens = new int[n];
+        float[] normalizedQuery = query == null ? null : normalize(query);
+        for (int i = 0; i < n; i++) {
+            rows[i] = store.vector(pool[i], new float[dimensions]);
+            relevance[i] = normalizedQuery == null ? 0f : KERNEL.dot(normalizedQuery, 0, rows[i], 0, dimensions);
+            // + 1 pour le séparateur entre chunks
+            tokens[i] = estimateTokens(store.text(pool[i])) + 1;
+        }
+
+        // Similarité de chaque candidat au chunk retenu le plus proche
+        float[] closest = new float[n];
+        Arrays.fill(closest, -1f);
+        boolean[] taken = new boolean[n];
+        int[] selected = new int[n];
+        int selectedCount = 0;
+        int budget = maxTokens;
+        while (true) {
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (taken[i] || tokens[i] > budget) {
+                    continue;
+                }
+                double redundancy = selectedCount == 0 ? 0.0 : closest[i];
+                double score = lambda * relevance[i] - (1 - lambda) * redundancy;
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            taken[best] = true;
+            selected[selectedCount++] = pool[best];
+            budget -= tokens[best];
+            for (int i = 0; i < n; i++) {
+                if (!taken[i]) {
+                    closest[i] = Math.max(closest[i], KERNEL.dot(rows[best], 0, rows[i], 0, dimensions));
+                }
+            }
+        }
+
+        // Les positions de l'index suivent l'ordre des chunks dans le cours
+        int[] positions = Arrays.copyOf(selected, selectedCount);
+        Arrays.sort(positions);
+        return new Selection(positions, maxTokens - budget, n);
+    }
+
+    /**
+     * Tout le cours s'il tient dans le réservoir ; sinon la moitié la plus
+     * pertinente complétée par des chunks pris à intervalle régulier
+     */
+    private int[] candidates(MappedVectorStore store, float[] query) {
+        int count = store.size();
+        if (count <= candidatePool) {
+            int[] all = new int[count];
+            Arrays.setAll(all, i -> i);
+            return all;
+        }
+        boolean[] chosen = new boolean[count];
+        int[] pool = new int[candidatePool];
+        int size = 0;
+        if (query != null) {
+            for (int position : store.search(query, candidatePool / 2, -1.0, null)) {
+                chosen[position] = true;
+                pool[size++] = position;
+            }
+        }
+        int remaining = candidatePool - size;
+        double step = (double) count / remaining;
+        for (int i = 0; i < remaining; i++) {
+            int position = (int) (i * step);
+            if (!chosen[position]) {
+                chosen[position] = true;
+                pool[size++] = position;
+            }
+        }
+        return Arrays.copyOf(pool, size);
+    }
+
+    private static float[] normalize(float[] vector) {
+        double sum = 0;
+        for (float value : vector) {
+            sum += value * value;
+        }
+        float norm = (float) Math.sqrt(sum);
+        float[] normalized = new float[vector.length];
+        for (int d = 0; d < vector.length; d++) {
+            normalized[d] = norm == 0f ? 0f : vector[d] / norm;
+        }
+        return normalized;
+    }
+}
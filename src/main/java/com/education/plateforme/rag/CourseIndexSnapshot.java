@@ -0,0 +1,21 @@
+package com.education.plateforme.rag;
+
+/**
+ * Version publiée et immuable de l'index vectoriel d'un cours.
+ *
+ * Une réindexation construit un nouvel instantané à côté de l'ancien puis le
+ * substitue atomiquement : un lecteur voit toujours un index complet.
+ * L'index lexical BM25 est construit avec l'instantané, à partir des textes
+ * du fichier projeté : il suit donc chaque réindexation du cours, sans
+ * toucher aux autres cours.
+ */
+public record CourseIndexSnapshot(Long courseId, long version, MappedVectorStore store, LexicalIndex lexical) {
+
+    public CourseIndexSnapshot(Long courseId, long version, MappedVectorStore store) {
+        this(courseId, version, store, LexicalIndex.build(store.size(), store::text));
+    }
+
+    public int size() {
+        return store.size();
+    }
+}
@@ -0,0 +1,120 @@
+package com.education.plateforme.rag;
+
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pipeline de calcul des embeddings : lots de taille fixe → pool de workers
+ * borné → consommateur appelé dans l'ordre des lots.
+ *
+ * Le nombre de lots en vol est limité : quand la limite est atteinte, le
+ * thread appelant attend le plus ancien lot et le remet au consommateur
+ * avant d'en soumettre un autre. La mémoire reste ainsi bornée à
+ * maxInFlight × batchSize vecteurs, quelle que soit la taille du cours.
+ */
+public class EmbeddingPipeline implements AutoCloseable {
+
+    /**
+     * Reçoit un lot de vecteurs, dans l'ordre, sur le thread appelant
+     */
+    @FunctionalInterface
+    public interface BatchSink {
+        void accept(int firstIndex, List<String> texts, List<float[]> embeddings);
+    }
+
+    public record Result(int chunks, int batches, long elapsedMillis) {
+
+        public double chunksPerSecond() {
+            return elapsedMillis == 0 ? chunks * 1000.0 : chunks * 1000.0 / elapsedMillis;
+        }
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final ExecutorService workers;
+
+    public EmbeddingPipeline(EmbeddingModel embeddingModel, int batchSize, int workerCount, int maxInFlight) {
+        if (batchSize < 1 || workerCount < 1) {
+            throw new IllegalArgumentException("Taille de lot et nombre de workers doivent être positifs");
+        }
+        this.embeddingModel = embeddingModel;
+        this.batchSize = batchSize;
+        this.maxInFlight = Math.max(workerCount, maxInFlight);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "embedding-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Calcule les embeddings de tous les textes et les transmet lot par lot au consommateur
+     */
+    public Result run(List<String> texts, BatchSink sink) {
+        long start = System.currentTimeMillis();
+        ArrayDeque<Batch> inFlight = new ArrayDeque<>(maxInFlight);
+        int batches = 0;
+        try {
+            for (int from = 0; from < texts.size(); from += batchSize) {
+                if (inFlight.size() == maxInFlight) {
+                    drain(inFlight.poll(), sink);
+                }
+                List<String> slice = texts.subList(from, Math.min(from + batchSize, texts.size()));
+                inFlight.add(new Batch(from, slice, workers.submit(() -> embeddingModel.embed(slice))));
+                batches++;
+            }
+            while (!inFlight.isEmpty()) {
+                drain(inFlight.poll(), sink);
+            }
+        } finally {
+            inFlight.forEach(batch -> batch.embeddings().cancel(true));
+        }
+        return new Result(texts.size(), batches, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Calcule les embeddings de tous les textes, dans l'ordre
+     */
+    public List<float[]> embedAll(List<String> texts) {
+        List<float[]> embeddings = new ArrayList<>(texts.size());
+        run(texts, (firstIndex, batch, vectors) -> embeddings.addAll(vectors));
+        return embeddings;
+    }
+
+    private void drain(Batch batch, BatchSink sink) {
+        List<float[]> embeddings;
+        try {
+            embeddings = batch.embeddings().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Calcul des embeddings interrompu", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause
+                    : new RuntimeException("Erreur lors du calcul des embeddings: " + e.getCause().getMessage(), e.getCause());
+        }
+        if (embeddings.size() != batch.texts().size()) {
+            throw new IllegalStateException("Le modèle a renvoyé " + embeddings.size() + " vecteurs pour "
+                    + batch.texts().size() + " textes");
+        }
+        sink.accept(batch.firstIndex(), batch.texts(), embeddings);
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private record Batch(int firstIndex, List<String> texts, Future<List<float[]>> embeddings) {
+    }
+}
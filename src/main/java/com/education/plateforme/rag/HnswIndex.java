@@ -0,0 +1,625 @@
+package com.education.plateforme.rag;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index de plus proches voisins approché (HNSW) sur des vecteurs normalisés.
+ *
+ * Chaque nœud porte l'identifiant du chunk et celui de son cours, ce qui
+ * permet de filtrer la recherche par cours. Les suppressions sont logiques
+ * (pierres tombales) : les nœuds supprimés restent traversables mais ne sont
+ * jamais renvoyés. Un mode force brute exact sert de référence pour mesurer
+ * le rappel.
+ *
+ * Paramètres : m (voisins par nœud), efConstruction (qualité du graphe),
+ * efSearch (compromis rappel / latence à la recherche), exactFilterThreshold
+ * (en dessous de ce nombre de nœuds filtrés, un parcours exact des seuls
+ * nœuds des cours demandés est plus rapide et plus juste que le graphe).
+ */
+public class HnswIndex {
+
+    public record Hit(long chunkId, long courseId, float score) {
+    }
+
+    private static final SimilarityKernel KERNEL = SimilarityKernel.preferred();
+
+    private final int dimensions;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final int exactFilterThreshold;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int size = 0;
+    private int deletedCount = 0;
+    private float[] vectors;
+    private long[] chunkIds;
+    private long[] courseIds;
+    private boolean[] deleted;
+    private int[][][] neighbors; // [nœud][niveau] -> voisins, la case 0 contient le nombre
+    private final Map<Long, Integer> nodeByChunkId = new HashMap<>();
+    private final Map<Long, NodeList> nodesByCourse = new HashMap<>();
+
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+
+    public HnswIndex(int dimensions, int m, int efConstruction, int exactFilterThreshold) {
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.exactFilterThreshold = exactFilterThreshold;
+        this.levelMultiplier = 1.0 / Math.log(Math.max(2, m));
+        int capacity = 1024;
+        this.vectors = new float[capacity * dimensions];
+        this.chunkIds = new long[capacity];
+        this.courseIds = new long[capacity];
+        this.deleted = new boolean[capacity];
+        this.neighbors = new int[capacity][][];
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Nombre de nœuds actifs (hors suppressions)
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(long chunkId) {
+        lock.readLock().lock();
+        try {
+            return nodeByChunkId.containsKey(chunkId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Identifiants des chunks actifs d'un cours
+     */
+    public long[] chunkIdsOfCourse(long courseId) {
+        lock.readLock().lock();
+        try {
+            NodeList nodes = nodesByCourse.get(courseId);
+            if (nodes == null) {
+                return new long[0];
+            }
+            long[] ids = new long[nodes.size];
+            int live = 0;
+            for (int i = 0; i < nodes.size; i++) {
+                int node = nodes.items[i];
+                if (!deleted[node]) {
+                    ids[live++] = chunkIds[node];
+                }
+            }
+            return Arrays.copyOf(ids, live);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Insère (ou remplace) le vecteur d'un chunk
+     */
+    public void add(long chunkId, long courseId, float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Dimension incohérente : " + vector.length + " au lieu de " + dimensions);
+        }
+        lock.writeLock().lock();
+        try {
+            Integer previous = nodeByChunkId.remove(chunkId);
+            if (previous != null && !deleted[previous]) {
+                markDeleted(previous);
+            }
+            int node = allocate(chunkId, courseId, vector);
+            nodeByChunkId.put(chunkId, node);
+            nodesByCourse.computeIfAbsent(courseId, id -> new NodeList()).add(node);
+            insert(node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Supprime logiquement tous les chunks d'un cours
+     */
+    public int removeCourse(long courseId) {
+        lock.writeLock().lock();
+        try {
+            NodeList nodes = nodesByCourse.remove(courseId);
+            if (nodes == null) {
+                return 0;
+            }
+            int removed = 0;
+            for (int i = 0; i < nodes.size; i++) {
+                int node = nodes.items[i];
+                if (!deleted[node]) {
+                    deleted[node] = true;
+                    nodeByChunkId.remove(chunkIds[node]);
+                    removed++;
+                }
+            }
+            deletedCount += removed;
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Supprime logiquement un chunk
+     */
+    public boolean remove(long chunkId) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodeByChunkId.remove(chunkId);
+            if (node == null || deleted[node]) {
+                return false;
+            }
+            markDeleted(node);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copie de l'index sans ses pierres tombales : le graphe est reconstruit à partir
+     * des seuls nœuds actifs (les recherches continuent sur l'original pendant ce temps)
+     */
+    public HnswIndex compacted() {
+        HnswIndex copy = new HnswIndex(dimensions, m, efConstruction, exactFilterThreshold);
+        lock.readLock().lock();
+        try {
+            float[] vector = new float[dimensions];
+            for (int node = 0; node < size; node++) {
+                if (!deleted[node]) {
+                    System.arraycopy(vectors, node * dimensions, vector, 0, dimensions);
+                    copy.add(chunkIds[node], courseIds[node], vector);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return copy;
+    }
+
+    /**
+     * Recherche approchée des topK plus proches voisins parmi les cours demandés
+     *
+     * @param courseFilter null pour chercher dans tous les cours
+     */
+    public List<Hit> search(float[] query, int topK, int efSearch, Collection<Long> courseFilter) {
+        float[] normalized = normalize(query);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || topK <= 0) {
+                return Collections.emptyList();
+            }
+            Set<Long> courses = courseFilter == null ? null : new HashSet<>(courseFilter);
+
+            // Filtre très sélectif : le parcours exact des nœuds concernés est plus sûr
+            if (courses != null) {
+                int filteredNodes = countNodes(courses);
+                if (filteredNodes <= exactFilterThreshold || filteredNodes * 20L < size) {
+                    return bruteForceLocked(normalized, topK, courses);
+                }
+            }
+
+            int ep = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                ep = greedyClosest(normalized, ep, level);
+            }
+
+            // Si le filtre écarte trop de voisins, on élargit le faisceau avant de basculer en force brute
+            int ef = Math.max(efSearch, topK);
+            while (true) {
+                ScoreHeap filtered = ScoreHeap.min(topK);
+                searchLayer(normalized, ep, ef, 0, filtered, topK, courses);
+                if (filtered.size() >= topK || courses == null || ef >= size) {
+                    return toHits(filtered);
+                }
+                if (ef >= 8 * Math.max(efSearch, topK)) {
+                    return bruteForceLocked(normalized, topK, courses);
+                }
+                ef *= 2;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Recherche exacte par force brute (référence pour mesurer le rappel)
+     *
+     * @param courseFilter null pour chercher dans tous les cours
+     */
+    public List<Hit> bruteForce(float[] query, int topK, Collection<Long> courseFilter) {
+        float[] normalized = normalize(query);
+        lock.readLock().lock();
+        try {
+            return bruteForceLocked(normalized, topK, courseFilter == null ? null : new HashSet<>(courseFilter));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Hit> bruteForceLocked(float[] query, int topK, Set<Long> courses) {
+        ScoreHeap heap = ScoreHeap.min(topK);
+        if (courses == null) {
+            for (int node = 0; node < size; node++) {
+                if (!deleted[node]) {
+                    heap.offer(node, similarity(query, node), topK);
+                }
+            }
+        } else {
+            for (Long courseId : courses) {
+                NodeList nodes = nodesByCourse.get(courseId);
+                for (int i = 0; nodes != null && i < nodes.size; i++) {
+                    int node = nodes.items[i];
+                    if (!deleted[node]) {
+                        heap.offer(node, similarity(query, node), topK);
+                    }
+                }
+            }
+        }
+        return toHits(heap);
+    }
+
+    /**
+     * Nœuds actifs des cours du filtre (les pierres tombales ne comptent pas :
+     * un cours souvent réindexé bascule bien en force brute)
+     */
+    private int countNodes(Set<Long> courses) {
+        int count = 0;
+        for (Long courseId : courses) {
+            NodeList nodes = nodesByCourse.get(courseId);
+            count += nodes == null ? 0 : nodes.live;
+        }
+        return count;
+    }
+
+    /**
+     * Pierre tombale sur un nœud encore actif (sous le verrou d'écriture)
+     */
+    private void markDeleted(int node) {
+        deleted[node] = true;
+        deletedCount++;
+        NodeList nodes = nodesByCourse.get(courseIds[node]);
+        if (nodes != null) {
+            nodes.live--;
+        }
+    }
+
+    // ========== CONSTRUCTION DU GRAPHE ==========
+
+    private int allocate(long chunkId, long courseId, float[] vector) {
+        if (size == chunkIds.length) {
+            int capacity = chunkIds.length * 2;
+            vectors = Arrays.copyOf(vectors, capacity * dimensions);
+            chunkIds = Arrays.copyOf(chunkIds, capacity);
+            courseIds = Arrays.copyOf(courseIds, capacity);
+            deleted = Arrays.copyOf(deleted, capacity);
+            neighbors = Arrays.copyOf(neighbors, capacity);
+        }
+        int node = size++;
+        float norm = norm(vector);
+        int offset = node * dimensions;
+        for (int i = 0; i < dimensions; i++) {
+            vectors[offset + i] = norm == 0f ? 0f : vector[i] / norm;
+        }
+        chunkIds[node] = chunkId;
+        courseIds[node] = courseId;
+        deleted[node] = false;
+
+        int level = randomLevel();
+        neighbors[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            neighbors[node][l] = new int[(l == 0 ? maxM0 : m) + 1];
+        }
+        return node;
+    }
+
+    private void insert(int node) {
+        int level = neighbors[node].length - 1;
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        float[] query = Arrays.copyOfRange(vectors, node * dimensions, (node + 1) * dimensions);
+        int ep = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            ep = greedyClosest(query, ep, l);
+        }
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            ScoreHeap candidates = searchLayer(query, ep, efConstruction, l, null, 0, null);
+            float[] scores = new float[candidates.size()];
+            int[] sorted = candidates.drainBestFirst(scores);
+            int[] selected = selectNeighbors(node, sorted, m);
+
+            for (int neighbor : selected) {
+                link(node, neighbor, l);
+                link(neighbor, node, l);
+            }
+            ep = sorted.length > 0 ? sorted[0] : ep;
+        }
+
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    private void link(int from, int to, int level) {
+        int[] list = neighbors[from][level];
+        int count = list[0];
+        for (int i = 1; i <= count; i++) {
+            if (list[i] == to) {
+                return;
+            }
+        }
+        if (count < list.length - 1) {
+            list[count + 1] = to;
+            list[0] = count + 1;
+            return;
+        }
+
+        // Liste pleine : on réapplique l'heuristique de sélection sur les candidats
+        int[] candidates = new int[count + 1];
+        System.arraycopy(list, 1, candidates, 0, count);
+        candidates[count] = to;
+        float[] scores = new float[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            scores[i] = similarity(from, candidates[i]);
+        }
+        sortBestFirst(candidates, scores);
+        int[] kept = selectNeighbors(from, candidates, list.length - 1);
+        list[0] = kept.length;
+        System.arraycopy(kept, 0, list, 1, kept.length);
+    }
+
+    /**
+     * Heuristique HNSW : on garde un candidat s'il est plus proche du nœud que
+     * de tous les voisins déjà retenus, puis on complète avec les écartés.
+     */
+    private int[] selectNeighbors(int node, int[] candidatesBestFirst, int limit) {
+        int[] selected = new int[Math.min(limit, candidatesBestFirst.length)];
+        int count = 0;
+        boolean[] taken = new boolean[candidatesBestFirst.length];
+        for (int i = 0; i < candidatesBestFirst.length && count < selected.length; i++) {
+            int candidate = candidatesBestFirst[i];
+            if (candidate == node) {
+                taken[i] = true;
+                continue;
+            }
+            float toNode = similarity(node, candidate);
+            boolean keep = true;
+            for (int j = 0; j < count; j++) {
+                if (similarity(candidate, selected[j]) > toNode) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[count++] = candidate;
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < candidatesBestFirst.length && count < selected.length; i++) {
+            if (!taken[i] && candidatesBestFirst[i] != node) {
+                selected[count++] = candidatesBestFirst[i];
+            }
+        }
+        return count == selected.length ? selected : Arrays.copyOf(selected, count);
+    }
+
+    // ========== PARCOURS ==========
+
+    private int greedyClosest(float[] query, int ep, int level) {
+        int current = ep;
+        float best = similarity(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] list = neighbors[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int candidate = list[i];
+                float score = similarity(query, candidate);
+                if (score > best) {
+                    best = score;
+                    current = candidate;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Recherche en faisceau sur un niveau. Renvoie les ef meilleurs nœuds visités
+     * (tas minimum) ; si filtered est fourni, y accumule les topK meilleurs nœuds
+     * actifs acceptés par le filtre.
+     */
+    private ScoreHeap searchLayer(float[] query, int ep, int ef, int level,
+                                  ScoreHeap filtered, int topK, Set<Long> courses) {
+        Visited seen = visited.get();
+        seen.reset(size);
+
+        ScoreHeap results = ScoreHeap.min(ef + 1);
+        ScoreHeap candidates = ScoreHeap.max(ef + 1);
+
+        float score = similarity(query, ep);
+        seen.mark(ep);
+        results.push(ep, score);
+        candidates.push(ep, score);
+        if (filtered != null && accept(ep, courses)) {
+            filtered.offer(ep, score, topK);
+        }
+
+        while (!candidates.isEmpty()) {
+            float candidateScore = candidates.topScore();
+            if (results.size() >= ef && candidateScore < results.topScore()) {
+                break;
+            }
+            int current = candidates.pop();
+            int[] list = neighbors[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int neighbor = list[i];
+                if (!seen.mark(neighbor)) {
+                    continue;
+                }
+                float neighborScore = similarity(query, neighbor);
+                if (results.size() < ef || neighborScore > results.topScore()) {
+                    candidates.push(neighbor, neighborScore);
+                    results.push(neighbor, neighborScore);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+                if (filtered != null && accept(neighbor, courses)) {
+                    filtered.offer(neighbor, neighborScore, topK);
+                }
+            }
+        }
+        return results;
+    }
+
+    // ========== OUTILS ==========
+
+    private boolean accept(int node, Set<Long> courses) {
+        return !deleted[node] && (courses == null || courses.contains(courseIds[node]));
+    }
+
+    private List<Hit> toHits(ScoreHeap heap) {
+        float[] scores = new float[heap.size()];
+        int[] nodes = heap.drainBestFirst(scores);
+        List<Hit> hits = new ArrayList<>(nodes.length);
+        for (int i = 0; i < nodes.length; i++) {
+            hits.add(new Hit(chunkIds[nodes[i]], courseIds[nodes[i]], scores[i]));
+        }
+        return hits;
+    }
+
+    private int randomLevel() {
+        double r = 1.0 - random.nextDouble();
+        return (int) Math.min(16, Math.floor(-Math.log(r) * levelMultiplier));
+    }
+
+    private float similarity(float[] query, int node) {
+        return KERNEL.dot(query, 0, vectors, node * dimensions, dimensions);
+    }
+
+    private float similarity(int a, int b) {
+        return KERNEL.dot(vectors, a * dimensions, vectors, b * dimensions, dimensions);
+    }
+
+    private static void sortBestFirst(int[] ids, float[] scores) {
+        // Tri par insertion : listes de voisins courtes (2m + 1 au plus)
+        for (int i = 1; i < ids.length; i++) {
+            int id = ids[i];
+            float score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                ids[j + 1] = ids[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            ids[j + 1] = id;
+            scores[j + 1] = score;
+        }
+    }
+
+    private float[] normalize(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Dimension de requête " + vector.length + " au lieu de " + dimensions);
+        }
+        float norm = norm(vector);
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = norm == 0f ? 0f : vector[i] / norm;
+        }
+        return normalized;
+    }
+
+    private static float norm(float[] vector) {
+        float sum = 0f;
+        for (float value : vector) {
+            sum += value * value;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    /**
+     * Liste croissante de nœuds (un cours), supprimés compris ; live compte les nœuds actifs
+     */
+    private static final class NodeList {
+        private int[] items = new int[16];
+        private int size = 0;
+        private int live = 0;
+
+        void add(int node) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = node;
+            live++;
+        }
+    }
+
+    /**
+     * Ensemble des nœuds visités, réutilisé par thread grâce à un numéro d'époque
+     */
+    private static final class Visited {
+        private int[] stamps = new int[0];
+        private int epoch = 0;
+
+        void reset(int capacity) {
+            if (stamps.length < capacity) {
+                stamps = new int[Math.max(capacity, stamps.length * 2)];
+                epoch = 0;
+            }
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * Marque le nœud ; renvoie false s'il était déjà visité
+         */
+        boolean mark(int node) {
+            if (stamps[node] == epoch) {
+                return false;
+            }
+            stamps[node] = epoch;
+            return true;
+        }
+    }
+}
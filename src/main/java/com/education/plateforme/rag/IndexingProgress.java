@@ -0,0 +1,12 @@
+package com.education.plateforme.rag;
+
+/**
+ * Avancement d'une indexation : chunks traités (réutilisés ou vectorisés) sur le total
+ */
+@FunctionalInterface
+public interface IndexingProgress {
+
+    IndexingProgress NONE = (done, total) -> { };
+
+    void update(int done, int total);
+}
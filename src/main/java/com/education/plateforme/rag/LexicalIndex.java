@@ -0,0 +1,172 @@
+package com.education.plateforme.rag;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Index inversé BM25 des chunks d'un cours, immuable.
+ *
+ * Les listes de postings sont stockées à plat (format CSR) : pour le terme t,
+ * les chunks et fréquences sont docs[offsets[t], offsets[t + 1]) et
+ * freqs[offsets[t], offsets[t + 1]), par position croissante dans l'index vectoriel.
+ */
+public final class LexicalIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private final Map<String, Integer> termIds;
+    private final int[] offsets;
+    private final int[] docs;
+    private final int[] freqs;
+    private final int[] docLengths;
+    private final float averageLength;
+
+    private LexicalIndex(Map<String, Integer> termIds, int[] offsets, int[] docs, int[] freqs, int[] docLengths) {
+        this.termIds = termIds;
+        this.offsets = offsets;
+        this.docs = docs;
+        this.freqs = freqs;
+        this.docLengths = docLengths;
+        long total = 0;
+        for (int length : docLengths) {
+            total += length;
+        }
+        this.averageLength = docLengths.length == 0 ? 0f : (float) total / docLengths.length;
+    }
+
+    /**
+     * Indexe count textes, lus par position
+     */
+    public static LexicalIndex build(int count, IntFunction<String> textAt) {
+        Map<String, Integer> termIds = new HashMap<>();
+        IntList[] postingDocs = new IntList[64];
+        IntList[] postingFreqs = new IntList[64];
+        int[] docLengths = new int[count];
+        // Identifiants des termes du chunk courant, triés puis comptés par plages
+        IntList documentTerms = new IntList();
+
+        for (int doc = 0; doc < count; doc++) {
+            documentTerms.size = 0;
+            TextTokenizer.tokenize(textAt.apply(doc), term -> {
+                Integer id = termIds.get(term);
+                if (id == null) {
+                    id = termIds.size();
+                    termIds.put(term, id);
+                }
+                documentTerms.add(id);
+            });
+            docLengths[doc] = documentTerms.size;
+            Arrays.sort(documentTerms.items, 0, documentTerms.size);
+            for (int i = 0; i < documentTerms.size; ) {
+                int id = documentTerms.items[i];
+                int run = i;
+                while (run < documentTerms.size && documentTerms.items[run] == id) {
+                    run++;
+                }
+                if (id >= postingDocs.length) {
+                    postingDocs = Arrays.copyOf(postingDocs, Math.max(id + 1, postingDocs.length * 2));
+                    postingFreqs = Arrays.copyOf(postingFreqs, postingDocs.length);
+                }
+                if (postingDocs[id] == null) {
+                    postingDocs[id] = new IntList();
+                    postingFreqs[id] = new IntList();
+                }
+                postingDocs[id].add(doc);
+                postingFreqs[id].add(run - i);
+                i = run;
+            }
+        }
+
+        int terms = termIds.size();
+        int[] offsets = new int[terms + 1];
+        for (int t = 0; t < terms; t++) {
+            offsets[t + 1] = offsets[t] + postingDocs[t].size;
+        }
+        int[] docs = new int[offsets[terms]];
+        int[] freqs = new int[offsets[terms]];
+        for (int t = 0; t < terms; t++) {
+            System.arraycopy(postingDocs[t].items, 0, docs, offsets[t], postingDocs[t].size);
+            System.arraycopy(postingFreqs[t].items, 0, freqs, offsets[t], postingFreqs[t].size);
+        }
+        return new LexicalIndex(termIds, offsets, docs, freqs, docLengths);
+    }
+
+    public int size() {
+        return docLengths.length;
+    }
+
+    public int termCount() {
+        return termIds.size();
+    }
+
+    /**
+     * Vrai si chaque terme apparaît dans au moins un chunk
+     */
+    public boolean containsAll(List<String> terms) {
+        for (String term : terms) {
+            if (!termIds.containsKey(term)) {
+                return false;
+            }
+        }
+        return !terms.isEmpty();
+    }
+
+    /**
+     * Positions des topK chunks de meilleur score BM25 (score &gt; 0), du meilleur au moins bon
+     */
+    public int[] search(List<String> terms, int topK, float[] scoresOut) {
+        int count = docLengths.length;
+        float[] scores = new float[count];
+        // Chunks ayant au moins un terme de la requête : seuls eux sont classés
+        IntList touched = new IntList();
+        for (String term : terms) {
+            Integer id = termIds.get(term);
+            if (id == null) {
+                continue;
+            }
+            int from = offsets[id];
+            int to = offsets[id + 1];
+            int df = to - from;
+            float idf = (float) Math.log(1.0 + (count - df + 0.5) / (df + 0.5));
+            for (int p = from; p < to; p++) {
+                int doc = docs[p];
+                float tf = freqs[p];
+                float norm = K1 * (1f - B + B * docLengths[doc] / averageLength);
+                if (scores[doc] == 0f) {
+                    touched.add(doc);
+                }
+                scores[doc] += idf * tf * (K1 + 1f) / (tf + norm);
+            }
+        }
+        ScoreHeap heap = ScoreHeap.min(topK);
+        for (int i = 0; i < touched.size; i++) {
+            int doc = touched.items[i];
+            heap.offer(doc, scores[doc], topK);
+        }
+        return heap.drainBestFirst(scoresOut);
+    }
+
+    /**
+     * Taille approximative en mémoire (tableaux et dictionnaire)
+     */
+    public long sizeInBytes() {
+        long arrays = (long) (offsets.length + docs.length + freqs.length + docLengths.length) * Integer.BYTES;
+        return arrays + termIds.size() * 64L;
+    }
+
+    private static final class IntList {
+        private int[] items = new int[4];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+    }
+}
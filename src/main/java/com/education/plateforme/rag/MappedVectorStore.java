@@ -0,0 +1,492 @@
+package com.education.plateforme.rag;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStoreRetriever;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Index vectoriel d'un cours stocké dans un fichier projeté en mémoire (mmap).
+ *
+ * Les vecteurs ne vivent pas dans le tas Java : le cache de pages de l'OS garde
+ * les cours actifs en mémoire et plusieurs JVM d'un même hôte partagent les
+ * mêmes pages. L'index est immuable ; une réindexation écrit un nouveau fichier.
+ * Il n'expose donc que la recherche (VectorStoreRetriever) et non VectorStore,
+ * dont les opérations d'ajout et de suppression n'ont pas de sens ici.
+ *
+ * Disposition du fichier (little-endian) :
+ * <pre>
+ * [en-tête 256 o] magic, version, dimensions, count, courseId, tag du modèle, quantification
+ * [vecteurs]      count * dimensions float32, normalisés (pas fixe)
+ * [quantifiés]    count vecteurs INT8 ou BINARY (absent si NONE), voir {@link QuantizedVectors}
+ * [chunkIds]      count long
+ * [chunkIndexes]  count int
+ * [offsets texte] (count + 1) long, relatifs à la section texte
+ * [texte]         contenus des chunks en UTF-8
+ * </pre>
+ *
+ * Avec une quantification, le premier passage ne lit que la section compacte ;
+ * seules les pages float32 des candidats sont touchées lors du reclassement
+ * exact, si bien que la section float32 reste froide dans le cache de pages.
+ */
+public class MappedVectorStore implements VectorStoreRetriever {
+
+    private static final int MAGIC = 0x52414756; // "RAGV"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 256;
+    private static final int MAX_TAG_BYTES = 200;
+    private static final int QUANTIZATION_OFFSET = 228;
+
+    // Candidats reclassés en float32 : topK × facteur
+    public static final int DEFAULT_RESCORE_FACTOR = 4;
+
+    private static final SimilarityKernel KERNEL = SimilarityKernel.preferred();
+
+    private final EmbeddingModel embeddingModel;
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final FloatBuffer vectors;
+    private final long courseId;
+    private final int dimensions;
+    private final int count;
+    private final String modelTag;
+    private final Quantization quantization;
+    private final QuantizedVectors quantized;
+    private final int rescoreFactor;
+    private final int quantizedOffset;
+    private final int chunkIdsOffset;
+    private final int chunkIndexesOffset;
+    private final int textOffsetsOffset;
+    private final int textOffset;
+
+    private MappedVectorStore(EmbeddingModel embeddingModel, Path file, ByteBuffer buffer, int rescoreFactor) {
+        this.embeddingModel = embeddingModel;
+        this.rescoreFactor = Math.max(1, rescoreFactor);
+        this.file = file;
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (this.buffer.getInt(0) != MAGIC || this.buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalStateException("Fichier d'index invalide : " + file);
+        }
+        this.dimensions = this.buffer.getInt(8);
+        this.count = this.buffer.getInt(12);
+        this.courseId = this.buffer.getLong(16);
+        byte[] tag = new byte[this.buffer.getShort(24)];
+        this.buffer.get(26, tag);
+        this.modelTag = new String(tag, StandardCharsets.UTF_8);
+        this.quantization = Quantization.values()[this.buffer.get(QUANTIZATION_OFFSET)];
+
+        this.quantizedOffset = HEADER_SIZE + count * dimensions * Float.BYTES;
+        this.chunkIdsOffset = quantizedOffset + count * quantization.rowBytes(dimensions);
+        this.chunkIndexesOffset = chunkIdsOffset + count * Long.BYTES;
+        this.textOffsetsOffset = chunkIndexesOffset + count * Integer.BYTES;
+        this.textOffset = textOffsetsOffset + (count + 1) * Long.BYTES;
+
+        this.vectors = this.buffer.duplicate()
+                .position(HEADER_SIZE)
+                .limit(quantizedOffset)
+                .slice()
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asFloatBuffer();
+        this.quantized = quantization == Quantization.NONE ? null
+                : new QuantizedVectors(quantization, dimensions, count,
+                        this.buffer.duplicate().position(quantizedOffset).limit(chunkIdsOffset).slice());
+    }
+
+    /**
+     * Projette en mémoire un index existant
+     */
+    public static MappedVectorStore open(EmbeddingModel embeddingModel, Path file) {
+        return open(embeddingModel, file, DEFAULT_RESCORE_FACTOR);
+    }
+
+    /**
+     * Projette en mémoire un index existant
+     *
+     * @param rescoreFactor candidats reclassés en float32 par résultat demandé (index quantifié)
+     */
+    public static MappedVectorStore open(EmbeddingModel embeddingModel, Path file, int rescoreFactor) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Index trop volumineux pour une seule projection : " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedVectorStore(embeddingModel, file, mapped, rescoreFactor);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible d'ouvrir l'index " + file, e);
+        }
+    }
+
+    /**
+     * Écrit un index complet puis le publie atomiquement à l'emplacement cible
+     */
+    public static void write(Path file, long courseId, String modelTag, int dimensions,
+                             long[] chunkIds, int[] chunkIndexes, List<String> texts, List<float[]> embeddings) {
+        write(file, courseId, modelTag, Quantization.NONE, dimensions, chunkIds, chunkIndexes, texts, embeddings);
+    }
+
+    public static void write(Path file, long courseId, String modelTag, Quantization quantization, int dimensions,
+                             long[] chunkIds, int[] chunkIndexes, List<String> texts, List<float[]> embeddings) {
+        try (Writer writer = writer(file, courseId, modelTag, texts.size(), quantization)) {
+            for (int i = 0; i < texts.size(); i++) {
+                if (embeddings.get(i).length != dimensions) {
+                    throw new IllegalArgumentException("Dimension incohérente : " + embeddings.get(i).length + " au lieu de " + dimensions);
+                }
+                writer.append(chunkIds[i], chunkIndexes[i], texts.get(i), embeddings.get(i));
+            }
+            writer.finish();
+        }
+    }
+
+    /**
+     * Ouvre un écrivain incrémental pour un index de count chunks
+     */
+    public static Writer writer(Path file, long courseId, String modelTag, int count) {
+        return writer(file, courseId, modelTag, count, Quantization.NONE);
+    }
+
+    public static Writer writer(Path file, long courseId, String modelTag, int count, Quantization quantization) {
+        return new Writer(file, courseId, modelTag, count, quantization);
+    }
+
+    /**
+     * Écriture en flux d'un index : chaque vecteur est écrit directement à sa
+     * place dans le fichier et chaque texte dans un fichier temporaire, si bien
+     * que seuls les identifiants et les offsets restent dans le tas. L'index
+     * n'est visible qu'après {@link #finish()} ; sans lui, {@link #close()}
+     * supprime les fichiers temporaires.
+     */
+    public static final class Writer implements AutoCloseable {
+
+        private final Path file;
+        private final Path tmp;
+        private final Path textTmp;
+        private final long courseId;
+        private final byte[] tag;
+        private final int count;
+        private final Quantization quantization;
+        private final long[] chunkIds;
+        private final int[] chunkIndexes;
+        private final long[] textOffsets;
+        private final FileChannel channel;
+        private final FileChannel textChannel;
+        private int dimensions = -1;
+        private ByteBuffer vectorBuffer;
+        private ByteBuffer quantizedBuffer;
+        private float[] normalized;
+        private int appended = 0;
+        private boolean finished = false;
+
+        private Writer(Path file, long courseId, String modelTag, int count, Quantization quantization) {
+            this.tag = modelTag.getBytes(StandardCharsets.UTF_8);
+            if (tag.length > MAX_TAG_BYTES) {
+                throw new IllegalArgumentException("Tag de modèle trop long : " + modelTag);
+            }
+            this.file = file;
+            this.tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            this.textTmp = file.resolveSibling(file.getFileName() + ".txt.tmp");
+            this.courseId = courseId;
+            this.count = count;
+            this.quantization = quantization;
+            this.chunkIds = new long[count];
+            this.chunkIndexes = new int[count];
+            this.textOffsets = new long[count + 1];
+            try {
+                Files.createDirectories(file.getParent());
+                this.channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                this.textChannel = FileChannel.open(textTmp, StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Impossible de créer l'index " + file, e);
+            }
+        }
+
+        public int appended() {
+            return appended;
+        }
+
+        /**
+         * Ajoute le chunk suivant ; la dimension est fixée par le premier vecteur
+         */
+        public void append(long chunkId, int chunkIndex, String text, float[] embedding) {
+            if (appended == count) {
+                throw new IllegalStateException("Index déjà complet (" + count + " chunks)");
+            }
+            if (dimensions < 0) {
+                dimensions = embedding.length;
+                vectorBuffer = ByteBuffer.allocate(dimensions * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                quantizedBuffer = ByteBuffer.allocate(quantization.rowBytes(dimensions)).order(ByteOrder.LITTLE_ENDIAN);
+                normalized = new float[dimensions];
+            } else if (embedding.length != dimensions) {
+                throw new IllegalArgumentException("Dimension incohérente : " + embedding.length + " au lieu de " + dimensions);
+            }
+
+            float norm = norm(embedding);
+            vectorBuffer.clear();
+            for (int d = 0; d < dimensions; d++) {
+                normalized[d] = norm == 0f ? 0f : embedding[d] / norm;
+                vectorBuffer.putFloat(normalized[d]);
+            }
+            vectorBuffer.flip();
+            byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+            try {
+                writeFully(channel, vectorBuffer, HEADER_SIZE + (long) appended * dimensions * Float.BYTES);
+                if (quantization != Quantization.NONE) {
+                    quantizedBuffer.clear();
+                    QuantizedVectors.encode(quantization, normalized, quantizedBuffer);
+                    quantizedBuffer.flip();
+                    long quantizedStart = HEADER_SIZE + (long) count * dimensions * Float.BYTES;
+                    writeFully(channel, quantizedBuffer, quantizedStart + (long) appended * quantizedBuffer.limit());
+                }
+                writeFully(textChannel, ByteBuffer.wrap(encoded), textOffsets[appended]);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Écriture de l'index " + file + " impossible", e);
+            }
+            chunkIds[appended] = chunkId;
+            chunkIndexes[appended] = chunkIndex;
+            textOffsets[appended + 1] = textOffsets[appended] + encoded.length;
+            appended++;
+        }
+
+        /**
+         * Écrit l'en-tête et les sections de métadonnées, puis publie le fichier
+         */
+        public void finish() {
+            if (appended != count) {
+                throw new IllegalStateException("Index incomplet : " + appended + " chunks sur " + count);
+            }
+            int dims = Math.max(dimensions, 0);
+            long vectorsEnd = HEADER_SIZE + (long) count * dims * Float.BYTES
+                    + (long) count * quantization.rowBytes(dims);
+            long textStart = vectorsEnd
+                    + (long) count * (Long.BYTES + Integer.BYTES)
+                    + (long) (count + 1) * Long.BYTES;
+            long size = textStart + textOffsets[count];
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Index trop volumineux (" + size + " octets)");
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(dims).putInt(count).putLong(courseId);
+            header.putShort((short) tag.length).put(tag);
+            header.put(QUANTIZATION_OFFSET, (byte) quantization.ordinal());
+            header.clear();
+
+            ByteBuffer metadata = ByteBuffer.allocate((int) (textStart - vectorsEnd)).order(ByteOrder.LITTLE_ENDIAN);
+            for (long chunkId : chunkIds) {
+                metadata.putLong(chunkId);
+            }
+            for (int chunkIndex : chunkIndexes) {
+                metadata.putInt(chunkIndex);
+            }
+            for (long offset : textOffsets) {
+                metadata.putLong(offset);
+            }
+            metadata.flip();
+
+            try {
+                writeFully(channel, header, 0);
+                writeFully(channel, metadata, vectorsEnd);
+                long copied = 0;
+                while (copied < textOffsets[count]) {
+                    copied += textChannel.transferTo(copied, textOffsets[count] - copied, channel.position(textStart + copied));
+                }
+                channel.force(true);
+                channel.close();
+                textChannel.close();
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.deleteIfExists(textTmp);
+                finished = true;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Impossible d'écrire l'index " + file, e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+                textChannel.close();
+                Files.deleteIfExists(textTmp);
+                if (!finished) {
+                    Files.deleteIfExists(tmp);
+                }
+            } catch (IOException e) {
+                System.err.println("Nettoyage des fichiers temporaires de " + file + " impossible : " + e.getMessage());
+            }
+        }
+
+        private static void writeFully(FileChannel target, ByteBuffer source, long position) throws IOException {
+            while (source.hasRemaining()) {
+                position += target.write(source, position);
+            }
+        }
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        float[] query = embeddingModel.embed(request.getQuery());
+        return similaritySearch(query, request.getTopK(), request.getSimilarityThreshold());
+    }
+
+    /**
+     * Recherche par similarité cosinus à partir d'un vecteur de requête déjà calculé
+     */
+    public List<Document> similaritySearch(float[] query, int topK, double similarityThreshold) {
+        float[] scores = new float[Math.max(0, topK)];
+        int[] positions = search(query, topK, similarityThreshold, scores);
+        List<Document> results = new ArrayList<>(positions.length);
+        for (int i = 0; i < positions.length; i++) {
+            results.add(toDocument(positions[i], scores[i]));
+        }
+        return results;
+    }
+
+    /**
+     * Positions des topK chunks les plus proches de la requête, du meilleur au moins bon,
+     * sans construire de Document ; scoresOut (optionnel) reçoit les similarités
+     */
+    public int[] search(float[] query, int topK, double similarityThreshold, float[] scoresOut) {
+        if (count == 0 || topK <= 0) {
+            return new int[0];
+        }
+        if (query.length != dimensions) {
+            throw new IllegalArgumentException("Dimension de requête " + query.length + " au lieu de " + dimensions);
+        }
+        float queryNorm = norm(query);
+        if (queryNorm == 0f) {
+            return new int[0];
+        }
+        float[] normalized = new float[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            normalized[d] = query[d] / queryNorm;
+        }
+        float threshold = (float) Math.max(-Float.MAX_VALUE, similarityThreshold);
+
+        if (quantized != null && (long) topK * rescoreFactor < count) {
+            // Premier passage approché, puis score exact des seuls candidats
+            ScoreHeap heap = ScoreHeap.min(topK);
+            float[] row = new float[dimensions];
+            for (int position : quantized.candidates(normalized, topK * rescoreFactor)) {
+                vectors.get(position * dimensions, row, 0, dimensions);
+                float score = KERNEL.dot(normalized, 0, row, 0, dimensions);
+                if (score >= threshold) {
+                    heap.offer(position, score, topK);
+                }
+            }
+            return heap.drainBestFirst(scoresOut);
+        }
+        return VectorSearch.topK(KERNEL, vectors, count, dimensions, normalized, topK, threshold, scoresOut);
+    }
+
+    /**
+     * Positions des topK plus proches voisins exacts (float32), du meilleur au moins bon
+     */
+    public int[] exactTopK(float[] query, int topK) {
+        float queryNorm = norm(query);
+        float[] normalized = new float[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            normalized[d] = queryNorm == 0f ? 0f : query[d] / queryNorm;
+        }
+        return VectorSearch.topK(KERNEL, vectors, count, dimensions, normalized, topK, -Float.MAX_VALUE, null);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public long getCourseId() {
+        return courseId;
+    }
+
+    public String getModelTag() {
+        return modelTag;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long sizeInBytes() {
+        return buffer.capacity();
+    }
+
+    public Quantization getQuantization() {
+        return quantization;
+    }
+
+    /**
+     * Octets parcourus à chaque recherche : tout le fichier sans quantification,
+     * sinon tout sauf la section float32 (lue seulement pour les candidats)
+     */
+    public long hotBytes() {
+        return quantized == null ? sizeInBytes() : sizeInBytes() - (long) count * dimensions * Float.BYTES;
+    }
+
+    public long chunkId(int position) {
+        return buffer.getLong(chunkIdsOffset + position * Long.BYTES);
+    }
+
+    public int chunkIndex(int position) {
+        return buffer.getInt(chunkIndexesOffset + position * Integer.BYTES);
+    }
+
+    public String text(int position) {
+        long start = buffer.getLong(textOffsetsOffset + position * Long.BYTES);
+        long end = buffer.getLong(textOffsetsOffset + (position + 1) * Long.BYTES);
+        byte[] bytes = new byte[(int) (end - start)];
+        buffer.get(textOffset + (int) start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copie le vecteur normalisé d'une position dans dst
+     */
+    public float[] vector(int position, float[] dst) {
+        vectors.get(position * dimensions, dst, 0, dimensions);
+        return dst;
+    }
+
+    private Document toDocument(int position, double score) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("courseId", courseId);
+        metadata.put("chunkIndex", chunkIndex(position));
+        metadata.put("chunkId", chunkId(position));
+        return Document.builder()
+                .id(String.valueOf(chunkId(position)))
+                .text(text(position))
+                .metadata(metadata)
+                .score(score)
+                .build();
+    }
+
+    private static float norm(float[] vector) {
+        float sum = 0f;
+        for (float value : vector) {
+            sum += value * value;
+        }
+        return (float) Math.sqrt(sum);
+    }
+}
@@ -0,0 +1,179 @@
+package com.education.plateforme.rag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Détection des chunks quasi identiques d'un cours, par MinHash et LSH.
+ *
+ * Chaque texte est réduit à l'ensemble de ses triplets de mots consécutifs
+ * (minuscules, ponctuation ignorée), résumé par une signature MinHash de
+ * bands x rows entiers : la proportion de composantes égales entre deux
+ * signatures estime la similarité de Jaccard des deux ensembles. Les signatures
+ * sont rangées par bande (LSH) ; seuls les textes partageant une bande entière
+ * sont comparés, si bien que le coût reste linéaire en nombre de chunks.
+ *
+ * Les textes sont parcourus dans l'ordre : un texte dont la similarité estimée
+ * avec un représentant déjà vu atteint le seuil lui est rattaché, sinon il
+ * devient lui-même représentant. Un doublon pointe donc toujours vers un
+ * représentant qui le précède, jamais vers un autre doublon.
+ */
+public final class NearDuplicateDetector {
+
+    private static final int SHINGLE_WORDS = 3;
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private final int bands;
+    private final int rows;
+    private final double threshold;
+    private final long[] multipliers;
+    private final long[] increments;
+
+    /**
+     * Le seuil de la LSH, environ (1/bands)^(1/rows), doit rester sous {@code threshold}
+     * pour qu'un couple au-dessus du seuil soit presque toujours comparé
+     */
+    public NearDuplicateDetector(int bands, int rows, double threshold) {
+        if (bands < 1 || rows < 1 || threshold <= 0 || threshold > 1) {
+            throw new IllegalArgumentException("Paramètres MinHash invalides");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.threshold = threshold;
+        int hashes = bands * rows;
+        this.multipliers = new long[hashes];
+        this.increments = new long[hashes];
+        long state = SEED;
+        for (int i = 0; i < hashes; i++) {
+            state = mix(state + SEED);
+            multipliers[i] = state | 1L; // impair : bijection sur 64 bits
+            state = mix(state + SEED);
+            increments[i] = state;
+        }
+    }
+
+    /**
+     * Pour chaque texte, la position de son représentant (elle-même si le texte n'a
+     * pas de quasi-doublon avant lui)
+     */
+    public int[] representatives(List<String> texts) {
+        int hashes = bands * rows;
+        int[] representatives = new int[texts.size()];
+        int[] signatures = new int[texts.size() * hashes];
+        // Clé de bande (bande, valeurs) -> représentants ayant cette bande
+        Map<Long, List<Integer>> buckets = new HashMap<>();
+        long[] keys = new long[bands];
+
+        for (int i = 0; i < texts.size(); i++) {
+            int offset = i * hashes;
+            signature(texts.get(i), signatures, offset);
+            for (int band = 0; band < bands; band++) {
+                long key = band;
+                for (int r = 0; r < rows; r++) {
+                    key = key * 0x100000001B3L + signatures[offset + band * rows + r];
+                }
+                keys[band] = mix(key);
+            }
+
+            int representative = i;
+            double best = threshold;
+            for (long key : keys) {
+                List<Integer> bucket = buckets.get(key);
+                if (bucket == null) {
+                    continue;
+                }
+                for (int candidate : bucket) {
+                    double similarity = similarity(signatures, candidate * hashes, offset, hashes);
+                    if (similarity >= best && (representative == i || similarity > best)) {
+                        best = similarity;
+                        representative = candidate;
+                    }
+                }
+            }
+            representatives[i] = representative;
+            if (representative == i) {
+                for (long key : keys) {
+                    buckets.computeIfAbsent(key, k -> new ArrayList<>(1)).add(i);
+                }
+            }
+        }
+        return representatives;
+    }
+
+    /**
+     * Signature MinHash d'un texte, écrite dans target à partir de offset
+     */
+    private void signature(String text, int[] target, int offset) {
+        int hashes = multipliers.length;
+        long[] minima = new long[hashes];
+        Arrays.fill(minima, Long.MAX_VALUE);
+        long[] window = new long[SHINGLE_WORDS];
+        int words = 0;
+        long word = 0;
+        boolean inWord = false;
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word = (word ^ Character.toLowerCase(c)) * 0x100000001B3L;
+                inWord = true;
+                continue;
+            }
+            if (inWord) {
+                window[words % SHINGLE_WORDS] = word;
+                words++;
+                if (words >= SHINGLE_WORDS) {
+                    long shingle = 0;
+                    for (int w = words - SHINGLE_WORDS; w < words; w++) {
+                        shingle = mix(shingle + window[w % SHINGLE_WORDS]);
+                    }
+                    addShingle(shingle, minima);
+                }
+                word = 0;
+                inWord = false;
+            }
+        }
+        if (words > 0 && words < SHINGLE_WORDS) {
+            // Texte trop court pour un triplet : ses mots forment un seul élément
+            long shingle = 0;
+            for (int w = 0; w < words; w++) {
+                shingle = mix(shingle + window[w]);
+            }
+            addShingle(shingle, minima);
+        }
+        for (int h = 0; h < hashes; h++) {
+            target[offset + h] = (int) (minima[h] >>> 32);
+        }
+    }
+
+    private void addShingle(long shingle, long[] minima) {
+        for (int h = 0; h < minima.length; h++) {
+            long value = (shingle * multipliers[h] + increments[h]) >>> 1; // positif : comparaison signée
+            if (value < minima[h]) {
+                minima[h] = value;
+            }
+        }
+    }
+
+    private static double similarity(int[] signatures, int a, int b, int hashes) {
+        int equal = 0;
+        for (int h = 0; h < hashes; h++) {
+            if (signatures[a + h] == signatures[b + h]) {
+                equal++;
+            }
+        }
+        return (double) equal / hashes;
+    }
+
+    /**
+     * Mélange final de SplitMix64
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
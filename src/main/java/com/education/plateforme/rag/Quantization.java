@@ -0,0 +1,26 @@
+package com.education.plateforme.rag;
+
+/**
+ * Représentation compacte des vecteurs d'un index, parcourue en premier passage
+ * avant le reclassement exact en float32
+ */
+public enum Quantization {
+
+    // Aucune : recherche exacte directement sur les float32
+    NONE,
+    // Un octet signé par dimension et un facteur d'échelle par vecteur (4x plus petit)
+    INT8,
+    // Un bit de signe par dimension, comparé par distance de Hamming (32x plus petit)
+    BINARY;
+
+    /**
+     * Taille d'un vecteur quantifié, en octets
+     */
+    public int rowBytes(int dimensions) {
+        return switch (this) {
+            case NONE -> 0;
+            case INT8 -> dimensions + Float.BYTES;
+            case BINARY -> ((dimensions + 63) / 64) * Long.BYTES;
+        };
+    }
+}
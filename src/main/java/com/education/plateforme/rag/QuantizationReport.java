@@ -0,0 +1,85 @@
+package com.education.plateforme.rag;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compare, sur l'index d'un cours, la recherche exacte float32 (résultats
+ * identiques à l'ancien SimpleVectorStore) aux modes quantifiés avec reclassement
+ */
+public final class QuantizationReport {
+
+    public record Row(Quantization quantization, long vectorBytes, double memorySaved,
+                      double recall, double firstPassRecall, long averageMicros) {
+    }
+
+    private QuantizationReport() {
+        // empêche l'instanciation
+    }
+
+    /**
+     * @param queries vecteurs de requête (non nécessairement normalisés)
+     */
+    public static List<Row> evaluate(MappedVectorStore store, List<float[]> queries, int topK, int rescoreFactor) {
+        long float32Bytes = (long) store.size() * store.getDimensions() * Float.BYTES;
+        List<int[]> exact = new ArrayList<>(queries.size());
+        long start = System.nanoTime();
+        for (float[] query : queries) {
+            exact.add(store.exactTopK(query, topK));
+        }
+        long exactMicros = (System.nanoTime() - start) / 1000 / Math.max(1, queries.size());
+
+        List<Row> rows = new ArrayList<>();
+        rows.add(new Row(Quantization.NONE, float32Bytes, 0.0, 1.0, 1.0, exactMicros));
+        for (Quantization quantization : List.of(Quantization.INT8, Quantization.BINARY)) {
+            QuantizedVectors vectors = QuantizedVectors.build(quantization, store);
+            long found = 0;
+            long foundFirstPass = 0;
+            long expected = 0;
+            start = System.nanoTime();
+            for (int q = 0; q < queries.size(); q++) {
+                float[] query = queries.get(q);
+                int[] candidates = vectors.candidates(query, topK * rescoreFactor);
+                int[] rescored = rescore(store, query, candidates, topK);
+                Set<Integer> truth = new HashSet<>();
+                for (int position : exact.get(q)) {
+                    truth.add(position);
+                }
+                expected += truth.size();
+                for (int position : rescored) {
+                    if (truth.contains(position)) {
+                        found++;
+                    }
+                }
+                for (int i = 0; i < Math.min(topK, candidates.length); i++) {
+                    if (truth.contains(candidates[i])) {
+                        foundFirstPass++;
+                    }
+                }
+            }
+            long micros = (System.nanoTime() - start) / 1000 / Math.max(1, queries.size());
+            double memorySaved = float32Bytes == 0 ? 0.0 : 1.0 - (double) vectors.sizeInBytes() / float32Bytes;
+            rows.add(new Row(quantization, vectors.sizeInBytes(), memorySaved,
+                    expected == 0 ? 1.0 : (double) found / expected,
+                    expected == 0 ? 1.0 : (double) foundFirstPass / expected,
+                    micros));
+        }
+        return rows;
+    }
+
+    private static int[] rescore(MappedVectorStore store, float[] query, int[] candidates, int topK) {
+        ScoreHeap heap = ScoreHeap.min(topK);
+        float[] vector = new float[store.getDimensions()];
+        for (int position : candidates) {
+            store.vector(position, vector);
+            float score = 0f;
+            for (int d = 0; d < vector.length; d++) {
+                score += query[d] * vector[d];
+            }
+            heap.offer(position, score, topK);
+        }
+        return heap.drainBestFirst(null);
+    }
+}
@@ -0,0 +1,130 @@
+package com.education.plateforme.rag;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Vecteurs quantifiés (INT8 ou BINARY) à pas fixe dans un tampon little-endian,
+ * projeté depuis le fichier d'index ou construit en mémoire pour les mesures.
+ *
+ * Le premier passage renvoie les candidats les plus proches selon la
+ * représentation compacte ; le score exact est recalculé ensuite sur les seuls
+ * candidats à partir des vecteurs float32.
+ */
+public final class QuantizedVectors {
+
+    private static final int BLOCK_ROWS = 256;
+
+    private static final SimilarityKernel KERNEL = SimilarityKernel.preferred();
+
+    private final Quantization quantization;
+    private final int dimensions;
+    private final int count;
+    private final int rowBytes;
+    private final ByteBuffer data;
+
+    public QuantizedVectors(Quantization quantization, int dimensions, int count, ByteBuffer data) {
+        if (quantization == Quantization.NONE) {
+            throw new IllegalArgumentException("Aucune représentation quantifiée pour NONE");
+        }
+        this.quantization = quantization;
+        this.dimensions = dimensions;
+        this.count = count;
+        this.rowBytes = quantization.rowBytes(dimensions);
+        this.data = data.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Quantifie en mémoire les vecteurs normalisés d'un index existant
+     */
+    public static QuantizedVectors build(Quantization quantization, MappedVectorStore store) {
+        int dims = store.getDimensions();
+        ByteBuffer data = ByteBuffer.allocate(quantization.rowBytes(dims) * store.size()).order(ByteOrder.LITTLE_ENDIAN);
+        float[] vector = new float[dims];
+        for (int i = 0; i < store.size(); i++) {
+            encode(quantization, store.vector(i, vector), data);
+        }
+        data.flip();
+        return new QuantizedVectors(quantization, dims, store.size(), data);
+    }
+
+    /**
+     * Écrit la forme quantifiée d'un vecteur normalisé à la position courante de dst
+     */
+    public static void encode(Quantization quantization, float[] vector, ByteBuffer dst) {
+        switch (quantization) {
+            case INT8 -> {
+                float maxAbs = 0f;
+                for (float value : vector) {
+                    maxAbs = Math.max(maxAbs, Math.abs(value));
+                }
+                float scale = maxAbs == 0f ? 0f : maxAbs / 127f;
+                for (float value : vector) {
+                    dst.put(scale == 0f ? 0 : (byte) Math.round(value / scale));
+                }
+                dst.putFloat(scale);
+            }
+            case BINARY -> {
+                long[] words = signBits(vector);
+                for (long word : words) {
+                    dst.putLong(word);
+                }
+            }
+            case NONE -> {
+            }
+        }
+    }
+
+    public Quantization getQuantization() {
+        return quantization;
+    }
+
+    public long sizeInBytes() {
+        return (long) rowBytes * count;
+    }
+
+    /**
+     * Positions des n meilleurs candidats, du plus proche au moins proche
+     */
+    public int[] candidates(float[] query, int n) {
+        int limit = Math.min(n, count);
+        ScoreHeap heap = ScoreHeap.min(limit);
+        if (quantization == Quantization.INT8) {
+            // Copie en masse d'un bloc de lignes, puis produit scalaire SIMD int8 × float
+            byte[] block = new byte[BLOCK_ROWS * rowBytes];
+            for (int first = 0; first < count; first += BLOCK_ROWS) {
+                int rows = Math.min(BLOCK_ROWS, count - first);
+                data.get(first * rowBytes, block, 0, rows * rowBytes);
+                for (int r = 0; r < rows; r++) {
+                    int base = r * rowBytes;
+                    float scale = Float.intBitsToFloat((block[base + dimensions] & 0xFF)
+                            | (block[base + dimensions + 1] & 0xFF) << 8
+                            | (block[base + dimensions + 2] & 0xFF) << 16
+                            | (block[base + dimensions + 3] & 0xFF) << 24);
+                    heap.offer(first + r, KERNEL.dot(query, block, base, dimensions) * scale, limit);
+                }
+            }
+        } else {
+            long[] queryBits = signBits(query);
+            for (int i = 0; i < count; i++) {
+                int base = i * rowBytes;
+                int differing = 0;
+                for (int w = 0; w < queryBits.length; w++) {
+                    differing += Long.bitCount(queryBits[w] ^ data.getLong(base + w * Long.BYTES));
+                }
+                heap.offer(i, -differing, limit);
+            }
+        }
+        return heap.drainBestFirst(null);
+    }
+
+    private static long[] signBits(float[] vector) {
+        long[] words = new long[(vector.length + 63) / 64];
+        for (int d = 0; d < vector.length; d++) {
+            if (vector[d] > 0f) {
+                words[d >>> 6] |= 1L << (d & 63);
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,31 @@
+package com.education.plateforme.rag;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fusion de classements par rang réciproque (RRF) : score = Σ 1 / (k + rang).
+ * Ne dépend que des rangs, si bien que cosinus et BM25 n'ont pas à être calibrés.
+ */
+public final class RankFusion {
+
+    private RankFusion() {
+        // empêche l'instanciation
+    }
+
+    /**
+     * @param rankings positions classées du meilleur au moins bon, une liste par source
+     * @return les topK positions fusionnées, de la meilleure à la moins bonne
+     */
+    public static int[] reciprocalRank(int k, int topK, int[]... rankings) {
+        Map<Integer, Float> fused = new HashMap<>();
+        for (int[] ranking : rankings) {
+            for (int rank = 0; rank < ranking.length; rank++) {
+                fused.merge(ranking[rank], 1f / (k + rank + 1), Float::sum);
+            }
+        }
+        ScoreHeap heap = ScoreHeap.min(topK);
+        fused.forEach((position, score) -> heap.offer(position, score, topK));
+        return heap.drainBestFirst(null);
+    }
+}
@@ -0,0 +1,153 @@
+package com.education.plateforme.rag;
+
+import java.util.Arrays;
+
+/**
+ * Tas binaire de couples (identifiant, score) sur tableaux primitifs.
+ *
+ * Tas minimum par défaut (la racine est le plus petit score) ; en mode
+ * maximum, la racine est le plus grand score.
+ */
+final class ScoreHeap {
+
+    private final boolean max;
+    private int[] ids;
+    private float[] scores;
+    private int size;
+
+    ScoreHeap(int capacity, boolean max) {
+        this.max = max;
+        this.ids = new int[Math.max(1, capacity)];
+        this.scores = new float[Math.max(1, capacity)];
+    }
+
+    static ScoreHeap min(int capacity) {
+        return new ScoreHeap(capacity, false);
+    }
+
+    static ScoreHeap max(int capacity) {
+        return new ScoreHeap(capacity, true);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int topId() {
+        return ids[0];
+    }
+
+    float topScore() {
+        return scores[0];
+    }
+
+    void push(int id, float score) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(score, scores[parent])) {
+                break;
+            }
+            ids[i] = ids[parent];
+            scores[i] = scores[parent];
+            i = parent;
+        }
+        ids[i] = id;
+        scores[i] = score;
+    }
+
+    /**
+     * Insère en gardant au plus bound éléments (tas minimum : garde les meilleurs scores)
+     */
+    boolean offer(int id, float score, int bound) {
+        if (size < bound) {
+            push(id, score);
+            return true;
+        }
+        if (before(scores[0], score)) {
+            replaceTop(id, score);
+            return true;
+        }
+        return false;
+    }
+
+    int pop() {
+        int top = ids[0];
+        size--;
+        if (size > 0) {
+            siftDown(ids[size], scores[size]);
+        }
+        return top;
+    }
+
+    void replaceTop(int id, float score) {
+        siftDown(id, score);
+    }
+
+    /**
+     * Vide le tas et renvoie les identifiants du meilleur au moins bon score
+     */
+    int[] drainBestFirst(float[] scoresOut) {
+        int n = size;
+        int[] result = new int[n];
+        for (int i = n - 1; i >= 0; i--) {
+            if (scoresOut != null) {
+                scoresOut[i] = scores[0];
+            }
+            result[i] = pop();
+        }
+        if (max) {
+            reverse(result, scoresOut, n);
+        }
+        return result;
+    }
+
+    private void siftDown(int id, float score) {
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && before(scores[right], scores[child])) {
+                child = right;
+            }
+            if (!before(scores[child], score)) {
+                break;
+            }
+            ids[i] = ids[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        ids[i] = id;
+        scores[i] = score;
+    }
+
+    private boolean before(float a, float b) {
+        return max ? a > b : a < b;
+    }
+
+    private static void reverse(int[] ids, float[] scores, int n) {
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+            if (scores != null) {
+                float score = scores[i];
+                scores[i] = scores[j];
+                scores[j] = score;
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.education.plateforme.rag;
+
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Cache des résultats de recherche d'un cours, borné en nombre d'entrées (LRU)
+ * et en durée de vie.
+ *
+ * La clé contient la version de l'index : une réindexation rend les anciennes
+ * entrées inaccessibles, et {@link #invalidateCourse} les retire aussitôt.
+ * Chaque entrée garde le coût de son calcul (embedding ou non, durée), cumulé
+ * à chaque succès pour mesurer ce que le cache économise.
+ */
+public class SearchResultCache {
+
+    public record Key(Long courseId, long version, String query, int topK) {
+    }
+
+    public record Stats(long hits, long misses, long evictions, long expirations, double hitRate,
+                        int entries, int maxEntries, long ttlSeconds,
+                        long embeddingCallsSaved, long searchMillisSaved) {
+    }
+
+    private record Entry(List<String> results, boolean embedded, long computeNanos, long expiresAtNanos) {
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    // Ordre d'accès : l'entrée la moins récemment lue est en tête
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long expirations = 0;
+    private long embeddingCallsSaved = 0;
+    private long nanosSaved = 0;
+
+    public SearchResultCache(int maxEntries, long ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+    }
+
+    /**
+     * Forme canonique d'une requête : Unicode NFC, minuscules, blancs compactés,
+     * points finaux retirés. Le modèle d'embedding ignorant la casse, deux
+     * requêtes de même forme ont les mêmes résultats (le ? est gardé : il
+     * distingue une question d'une recherche par mots-clés).
+     */
+    public static String normalizeQuery(String query) {
+        String text = Normalizer.normalize(query, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = normalized.length() > 0;
+                continue;
+            }
+            if (space) {
+                normalized.append(' ');
+                space = false;
+            }
+            normalized.append(c);
+        }
+        int end = normalized.length();
+        while (end > 0 && (normalized.charAt(end - 1) == '.' || normalized.charAt(end - 1) == '!'
+                || normalized.charAt(end - 1) == ' ')) {
+            end--;
+        }
+        normalized.setLength(end);
+        return normalized.toString();
+    }
+
+    /**
+     * Résultats en cache encore valides, ou null
+     */
+    public synchronized List<String> get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAtNanos() - System.nanoTime() < 0) {
+            entries.remove(key);
+            expirations++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        nanosSaved += entry.computeNanos();
+        if (entry.embedded()) {
+            embeddingCallsSaved++;
+        }
+        return entry.results();
+    }
+
+    /**
+     * @param embedded     vrai si le calcul a demandé un embedding de la requête
+     * @param computeNanos durée du calcul, économisée à chaque succès
+     */
+    public synchronized void put(Key key, List<String> results, boolean embedded, long computeNanos) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        entries.put(key, new Entry(List.copyOf(results), embedded, computeNanos, System.nanoTime() + ttlNanos));
+        Iterator<Key> eldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Retire toutes les entrées d'un cours (appelé à la publication d'une nouvelle version)
+     */
+    public synchronized void invalidateCourse(Long courseId) {
+        entries.keySet().removeIf(key -> key.courseId().equals(courseId));
+    }
+
+    public synchronized Stats stats() {
+        long lookups = hits + misses;
+        return new Stats(hits, misses, evictions, expirations, lookups == 0 ? 0.0 : (double) hits / lookups,
+                entries.size(), maxEntries, ttlNanos / 1_000_000_000L,
+                embeddingCallsSaved, nanosSaved / 1_000_000L);
+    }
+}
@@ -0,0 +1,322 @@
+package com.education.plateforme.rag;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Découpage d'un texte en chunks de phrases, en une seule passe.
+ *
+ * Le texte est lu caractère par caractère (CharSequence ou Reader) et les chunks
+ * sont produits à la demande par un itérateur : seul le chunk en cours de
+ * construction est en mémoire, dans un tampon réutilisé. Les espaces sont
+ * normalisés au passage (\r\n, espaces multiples), sans expression régulière.
+ *
+ * Règles de découpe :
+ * <ul>
+ *   <li>une phrase se termine par . ! ou ? suivi d'un blanc, ou en fin de paragraphe ;</li>
+ *   <li>un chunk ne dépasse pas maxTokens (estimation proche d'un tokenizer WordPiece) ;
+ *       une phrase plus longue est coupée entre deux mots ;</li>
+ *   <li>les overlapSentences dernières phrases d'un chunk sont reprises au début du suivant ;</li>
+ *   <li>un chunk rempli au moins à moitié se termine à la fin d'un paragraphe, sans
+ *       recouvrement, pour qu'une modification locale ne décale pas les chunks suivants.</li>
+ * </ul>
+ */
+public class SentenceChunker {
+
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private final int maxTokens;
+    private final int overlapSentences;
+
+    public SentenceChunker(int maxTokens, int overlapSentences) {
+        if (maxTokens < 1 || overlapSentences < 0) {
+            throw new IllegalArgumentException("Taille de chunk ou recouvrement invalide");
+        }
+        this.maxTokens = maxTokens;
+        this.overlapSentences = overlapSentences;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public int getOverlapSentences() {
+        return overlapSentences;
+    }
+
+    public Iterator<String> iterator(CharSequence text) {
+        return new ChunkIterator(new CharSequenceSource(text));
+    }
+
+    public Iterator<String> iterator(Reader reader) {
+        return new ChunkIterator(new ReaderSource(reader));
+    }
+
+    public Stream<String> stream(CharSequence text) {
+        Spliterator<String> spliterator = Spliterators.spliteratorUnknownSize(iterator(text),
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    public List<String> split(CharSequence text) {
+        List<String> chunks = new ArrayList<>();
+        iterator(text).forEachRemaining(chunks::add);
+        return chunks;
+    }
+
+    /**
+     * Estimation du nombre de tokens d'un texte, cohérente avec la découpe
+     */
+    public static int estimateTokens(CharSequence text) {
+        int tokens = 0;
+        int wordLength = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                wordLength++;
+                continue;
+            }
+            tokens += wordTokens(wordLength);
+            wordLength = 0;
+            if (!Character.isWhitespace(c)) {
+                tokens++;
+            }
+        }
+        return tokens + wordTokens(wordLength);
+    }
+
+    /**
+     * Un mot compte pour un token par tranche de 4 caractères au-delà du premier :
+     * les mots longs ou hors vocabulaire sont découpés en plusieurs sous-mots
+     */
+    private static int wordTokens(int length) {
+        return length == 0 ? 0 : 1 + (length - 1) / 4;
+    }
+
+    private static boolean isSentenceEnd(char c) {
+        return c == '.' || c == '!' || c == '?';
+    }
+
+    private interface CharSource {
+        /**
+         * Caractère suivant, ou -1 en fin de texte
+         */
+        int next();
+    }
+
+    private static final class CharSequenceSource implements CharSource {
+        private final CharSequence text;
+        private int position = 0;
+
+        CharSequenceSource(CharSequence text) {
+            this.text = text;
+        }
+
+        @Override
+        public int next() {
+            return position < text.length() ? text.charAt(position++) : -1;
+        }
+    }
+
+    private static final class ReaderSource implements CharSource {
+        private final Reader reader;
+        private final char[] buffer = new char[READ_BUFFER_SIZE];
+        private int position = 0;
+        private int limit = 0;
+
+        ReaderSource(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public int next() {
+            if (position == limit) {
+                try {
+                    limit = reader.read(buffer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Lecture du contenu impossible", e);
+                }
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+    }
+
+    /**
+     * Automate de découpe : le chunk courant est un seul StringBuilder, les phrases
+     * terminées y sont repérées par leur position de début et leur nombre de tokens
+     */
+    private final class ChunkIterator implements Iterator<String> {
+
+        private final CharSource source;
+        private final ArrayDeque<String> ready = new ArrayDeque<>(2);
+        private final StringBuilder buffer = new StringBuilder(maxTokens * 8);
+        private int[] sentenceStarts = new int[16];
+        private int[] sentenceTokens = new int[16];
+        private int sentenceCount = 0;
+        private int chunkTokens = 0;
+
+        // Phrase en cours : [currentStart, buffer.length())
+        private int currentStart = 0;
+        private int currentTokens = 0;
+        private int wordLength = 0;
+        private int newlines = 0;
+        private boolean pendingSpace = false;
+        private boolean afterCarriageReturn = false;
+        private char lastChar = 0;
+        private boolean finished = false;
+
+        ChunkIterator(CharSource source) {
+            this.source = source;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (ready.isEmpty() && !finished) {
+                advance();
+            }
+            return !ready.isEmpty();
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return ready.poll();
+        }
+
+        /**
+         * Consomme des caractères jusqu'à produire au moins un chunk ou atteindre la fin
+         */
+        private void advance() {
+            int read;
+            while (ready.isEmpty() && (read = source.next()) >= 0) {
+                char c = (char) read;
+                if (c == '\r' || c == '\n') {
+                    // \r\n et \r comptent pour un seul saut de ligne
+                    if (!(c == '\n' && afterCarriageReturn)) {
+                        newlines++;
+                    }
+                    afterCarriageReturn = c == '\r';
+                    onWhitespace();
+                    continue;
+                }
+                afterCarriageReturn = false;
+                if (Character.isWhitespace(c)) {
+                    onWhitespace();
+                    continue;
+                }
+                if (pendingSpace) {
+                    onWordBoundary();
+                }
+                newlines = 0;
+                if (Character.isLetterOrDigit(c)) {
+                    wordLength++;
+                } else {
+                    currentTokens += wordTokens(wordLength) + 1;
+                    wordLength = 0;
+                }
+                buffer.append(c);
+                lastChar = c;
+            }
+            if (ready.isEmpty()) {
+                endWord();
+                endSentence(true);
+                if (chunkTokens > 0) {
+                    emit(buffer.length(), false);
+                }
+                finished = true;
+            }
+        }
+
+        private void onWhitespace() {
+            endWord();
+            pendingSpace = buffer.length() > currentStart;
+        }
+
+        /**
+         * Blanc suivi d'un caractère visible : fin de phrase, de paragraphe, ou simple espace
+         */
+        private void onWordBoundary() {
+            boolean paragraph = newlines >= 2;
+            if (paragraph || isSentenceEnd(lastChar) || currentTokens >= maxTokens) {
+                endSentence(paragraph);
+            } else {
+                buffer.append(' ');
+            }
+            pendingSpace = false;
+        }
+
+        private void endWord() {
+            currentTokens += wordTokens(wordLength);
+            wordLength = 0;
+        }
+
+        private void endSentence(boolean paragraph) {
+            if (buffer.length() > currentStart) {
+                if (sentenceCount > 0 && chunkTokens + currentTokens > maxTokens) {
+                    emit(currentStart, true);
+                }
+                if (sentenceCount == sentenceStarts.length) {
+                    sentenceStarts = Arrays.copyOf(sentenceStarts, sentenceCount * 2);
+                    sentenceTokens = Arrays.copyOf(sentenceTokens, sentenceCount * 2);
+                }
+                sentenceStarts[sentenceCount] = currentStart;
+                sentenceTokens[sentenceCount] = currentTokens;
+                sentenceCount++;
+                chunkTokens += currentTokens;
+            }
+            if (paragraph && chunkTokens > 0 && chunkTokens * 2 >= maxTokens) {
+                emit(buffer.length(), false);
+            }
+            if (buffer.length() > 0 && buffer.length() > currentStart) {
+                buffer.append(' ');
+            }
+            currentStart = buffer.length();
+            currentTokens = 0;
+        }
+
+        /**
+         * Produit le chunk [0, end) puis ne garde dans le tampon que les phrases
+         * de recouvrement (si demandé) et la phrase en cours au-delà de end
+         */
+        private void emit(int end, boolean overlap) {
+            int textEnd = end;
+            while (textEnd > 0 && buffer.charAt(textEnd - 1) == ' ') {
+                textEnd--;
+            }
+            if (textEnd > 0) {
+                ready.add(buffer.substring(0, textEnd));
+            }
+
+            int keepFrom = sentenceCount;
+            if (overlap) {
+                int keptTokens = currentTokens;
+                while (keepFrom > 0 && sentenceCount - keepFrom < overlapSentences
+                        && keptTokens + sentenceTokens[keepFrom - 1] <= maxTokens) {
+                    keepFrom--;
+                    keptTokens += sentenceTokens[keepFrom];
+                }
+            }
+            int offset = keepFrom < sentenceCount ? sentenceStarts[keepFrom] : end;
+            buffer.delete(0, offset);
+            chunkTokens = 0;
+            for (int i = keepFrom; i < sentenceCount; i++) {
+                sentenceStarts[i - keepFrom] = sentenceStarts[i] - offset;
+                sentenceTokens[i - keepFrom] = sentenceTokens[i];
+                chunkTokens += sentenceTokens[i];
+            }
+            sentenceCount -= keepFrom;
+            currentStart = Math.max(0, currentStart - offset);
+        }
+    }
+}
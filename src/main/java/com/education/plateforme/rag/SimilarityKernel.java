@@ -0,0 +1,47 @@
+package com.education.plateforme.rag;
+
+/**
+ * Produits scalaires sur stockage contigu (tableaux primitifs).
+ *
+ * Deux implémentations : l'API Vector (jdk.incubator.vector, SIMD) quand le
+ * module est chargé — JVM lancée avec --add-modules jdk.incubator.vector —
+ * et une boucle scalaire sinon. Le choix est fait une fois au démarrage.
+ */
+public interface SimilarityKernel {
+
+    String name();
+
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Produit scalaire d'un vecteur float et d'un vecteur int8 (non mis à l'échelle)
+     */
+    float dot(float[] a, byte[] b, int bOffset, int length);
+
+    /**
+     * scores[r] = query · block[r × dims, (r + 1) × dims) pour r < rows
+     */
+    default void dotBlock(float[] query, float[] block, int rows, int dims, float[] scores) {
+        for (int r = 0; r < rows; r++) {
+            scores[r] = dot(query, 0, block, r * dims, dims);
+        }
+    }
+
+    static SimilarityKernel scalar() {
+        return ScalarSimilarityKernel.INSTANCE;
+    }
+
+    /**
+     * Noyau SIMD, ou null si le module jdk.incubator.vector n'est pas chargé
+     */
+    static SimilarityKernel vectorized() {
+        return SimilarityKernels.VECTORIZED;
+    }
+
+    /**
+     * Meilleur noyau disponible (désactivable par -Drag.similarity.simd=false)
+     */
+    static SimilarityKernel preferred() {
+        return SimilarityKernels.PREFERRED;
+    }
+}
@@ -0,0 +1,35 @@
+package com.education.plateforme.rag;
+
+/**
+ * Sélection du noyau au chargement : la classe SIMD n'est chargée que par
+ * réflexion, pour que son absence ne casse pas le reste de l'application
+ */
+final class SimilarityKernels {
+
+    static final SimilarityKernel VECTORIZED = loadVectorized();
+
+    static final SimilarityKernel PREFERRED = choosePreferred();
+
+    private SimilarityKernels() {
+        // empêche l'instanciation
+    }
+
+    private static SimilarityKernel loadVectorized() {
+        try {
+            Class.forName("jdk.incubator.vector.FloatVector");
+            return (SimilarityKernel) Class.forName("com.education.plateforme.rag.VectorApiSimilarityKernel")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static SimilarityKernel choosePreferred() {
+        boolean enabled = Boolean.parseBoolean(System.getProperty("rag.similarity.simd", "true"));
+        SimilarityKernel kernel = enabled && VECTORIZED != null ? VECTORIZED : ScalarSimilarityKernel.INSTANCE;
+        System.out.println("🧮 Noyau de similarité : " + kernel.name()
+                + (VECTORIZED == null ? " (lancer la JVM avec --add-modules jdk.incubator.vector pour le SIMD)" : ""));
+        return kernel;
+    }
+}
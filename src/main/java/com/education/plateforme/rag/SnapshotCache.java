@@ -0,0 +1,112 @@
+package com.education.plateforme.rag;
+
+import java.util.*;
+
+/**
+ * Cache LRU des instantanés d'index, borné par un budget en octets.
+ *
+ * Le poids d'une entrée est la partie du fichier projeté parcourue à chaque
+ * recherche : tout le fichier sans quantification, sans la section float32
+ * (lue seulement pour les candidats à reclasser) sinon. Un instantané
+ * plus gros que le budget entier est tout de même conservé, seul : il évince
+ * tous les autres, et sera évincé à son tour par la prochaine insertion.
+ * L'index lexical BM25 de l'instantané est compté en plus.
+ * Une entrée évincée se recharge depuis son fichier, sans inférence.
+ */
+public class SnapshotCache {
+
+    public record Stats(long hits, long misses, long evictions, double hitRate,
+                        long residentBytes, long budgetBytes, Map<Long, Long> residentBytesByCourse) {
+    }
+
+    private final long budgetBytes;
+    // Ordre d'insertion, l'entrée la plus récemment utilisée est replacée en fin
+    private final LinkedHashMap<Long, CourseIndexSnapshot> entries = new LinkedHashMap<>();
+    private long residentBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public SnapshotCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public static long estimateBytes(CourseIndexSnapshot snapshot) {
+        return snapshot.store().hotBytes() + snapshot.lexical().sizeInBytes();
+    }
+
+    /**
+     * Lecture comptabilisée (succès / échec) qui rafraîchit la position LRU
+     */
+    public synchronized CourseIndexSnapshot get(Long courseId) {
+        CourseIndexSnapshot snapshot = entries.remove(courseId);
+        if (snapshot != null) {
+            entries.put(courseId, snapshot);
+            hits++;
+        } else {
+            misses++;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Lecture sans effet sur les statistiques ni sur l'ordre LRU
+     */
+    public synchronized CourseIndexSnapshot peek(Long courseId) {
+        return entries.get(courseId);
+    }
+
+    /**
+     * Insère l'instantané s'il est plus récent que celui en cache, puis évince
+     * les cours les moins récemment utilisés jusqu'à respecter le budget.
+     *
+     * @return false si une version plus récente était déjà en cache
+     */
+    public synchronized boolean putIfNewer(CourseIndexSnapshot snapshot) {
+        CourseIndexSnapshot current = peek(snapshot.courseId());
+        if (current != null && current.version() >= snapshot.version()) {
+            return false;
+        }
+        long weight = estimateBytes(snapshot);
+        if (current != null) {
+            entries.remove(snapshot.courseId());
+            residentBytes -= estimateBytes(current);
+        }
+        if (weight > budgetBytes) {
+            // Pas de rechargement du fichier ni reconstruction BM25 à chaque recherche sur ce cours
+            System.out.println("⚠️ Index du cours " + snapshot.courseId() + " (" + weight + " o) plus grand que le budget du cache, conservé seul");
+        }
+        entries.put(snapshot.courseId(), snapshot);
+        residentBytes += weight;
+
+        Iterator<Map.Entry<Long, CourseIndexSnapshot>> eldest = entries.entrySet().iterator();
+        while (residentBytes > budgetBytes && eldest.hasNext()) {
+            Map.Entry<Long, CourseIndexSnapshot> entry = eldest.next();
+            if (entry.getKey().equals(snapshot.courseId())) {
+                continue;
+            }
+            residentBytes -= estimateBytes(entry.getValue());
+            eldest.remove();
+            evictions++;
+            System.out.println("🧹 Index du cours " + entry.getKey() + " évincé du cache");
+        }
+        return true;
+    }
+
+    public synchronized void invalidate(Long courseId) {
+        CourseIndexSnapshot removed = entries.remove(courseId);
+        if (removed != null) {
+            residentBytes -= estimateBytes(removed);
+        }
+    }
+
+    public synchronized Stats stats() {
+        Map<Long, Long> byCourse = new LinkedHashMap<>();
+        for (Map.Entry<Long, CourseIndexSnapshot> entry : entries.entrySet()) {
+            byCourse.put(entry.getKey(), estimateBytes(entry.getValue()));
+        }
+        long lookups = hits + misses;
+        return new Stats(hits, misses, evictions, lookups == 0 ? 0.0 : (double) hits / lookups,
+                residentBytes, budgetBytes, byCourse);
+    }
+}
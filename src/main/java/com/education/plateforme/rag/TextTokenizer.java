@@ -0,0 +1,119 @@
+package com.education.plateforme.rag;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Découpage en termes pour l'index lexical, français et anglais.
+ *
+ * Minuscules et accents retirés (é → e, œ → oe), mots vides FR/EN ignorés,
+ * pluriel simple retiré. Les identifiants techniques sont préservés : un mot
+ * contient lettres, chiffres et _, et les mots joints par . ou - (Math.sqrt,
+ * System.out.println, x-ray, 3.14) produisent aussi le terme composé entier.
+ */
+public final class TextTokenizer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            // français
+            "au", "aux", "avec", "ce", "ces", "cet", "cette", "dans", "de", "des", "du", "elle", "elles",
+            "en", "est", "et", "etre", "il", "ils", "je", "la", "le", "les", "leur", "leurs", "mais", "ne",
+            "nous", "on", "ou", "par", "pas", "plus", "pour", "qu", "que", "qui", "quoi", "sa", "sans", "se",
+            "ses", "son", "sont", "sur", "tu", "un", "une", "vous", "dont", "comme", "aussi",
+            // anglais
+            "an", "and", "are", "as", "at", "be", "but", "by", "for", "from", "if", "in", "into", "is", "it",
+            "its", "not", "no", "of", "or", "so", "such", "than", "that", "the", "then", "this", "to",
+            "was", "were", "with", "what", "how", "which");
+
+    private TextTokenizer() {
+        // empêche l'instanciation
+    }
+
+    /**
+     * Termes d'une requête, sans doublon, dans l'ordre d'apparition
+     */
+    public static List<String> queryTerms(CharSequence text) {
+        Set<String> terms = new LinkedHashSet<>();
+        tokenize(text, terms::add);
+        return new ArrayList<>(terms);
+    }
+
+    public static void tokenize(CharSequence text, Consumer<String> sink) {
+        StringBuilder word = new StringBuilder(32);
+        StringBuilder compound = new StringBuilder(64);
+        int parts = 0;
+        boolean keptPart = false;
+        char joiner = 0;
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (isWordChar(c)) {
+                appendFolded(word, c);
+                continue;
+            }
+            if (word.length() > 0) {
+                keptPart |= emitWord(word, sink);
+                if (parts > 0) {
+                    compound.append(joiner);
+                }
+                compound.append(word);
+                parts++;
+                word.setLength(0);
+                if ((c == '.' || c == '-') && i + 1 < length && isWordChar(text.charAt(i + 1))) {
+                    joiner = c;
+                    continue;
+                }
+            }
+            // Composé gardé sauf s'il n'est fait que de mots vides (est-ce, c'est-à-dire)
+            if (parts > 1 && keptPart) {
+                sink.accept(compound.toString());
+            }
+            compound.setLength(0);
+            parts = 0;
+            keptPart = false;
+        }
+    }
+
+    /**
+     * @return false si le mot est ignoré (mot vide ou lettre isolée)
+     */
+    private static boolean emitWord(StringBuilder word, Consumer<String> sink) {
+        int length = word.length();
+        if (length < 2 && !Character.isDigit(word.charAt(0))) {
+            return false;
+        }
+        String term = word.toString();
+        if (STOP_WORDS.contains(term)) {
+            return false;
+        }
+        // Pluriel simple : cours / classes -> classe, sans toucher aux mots en -ss
+        char last = term.charAt(length - 1);
+        if (length > 3 && (last == 's' || last == 'x') && term.charAt(length - 2) != 's') {
+            term = term.substring(0, length - 1);
+        }
+        sink.accept(term);
+        return true;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static void appendFolded(StringBuilder out, char c) {
+        switch (Character.toLowerCase(c)) {
+            case 'à', 'â', 'ä', 'á', 'ã', 'å' -> out.append('a');
+            case 'é', 'è', 'ê', 'ë' -> out.append('e');
+            case 'î', 'ï', 'í', 'ì' -> out.append('i');
+            case 'ô', 'ö', 'ó', 'ò', 'õ' -> out.append('o');
+            case 'ù', 'û', 'ü', 'ú' -> out.append('u');
+            case 'ç' -> out.append('c');
+            case 'ñ' -> out.append('n');
+            case 'ÿ' -> out.append('y');
+            case 'œ' -> out.append("oe");
+            case 'æ' -> out.append("ae");
+            default -> out.append(Character.toLowerCase(c));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.education.plateforme.rag;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Produits scalaires SIMD (FMA sur la largeur de registre préférée du processeur).
+ * Chargé uniquement par réflexion depuis {@link SimilarityKernels}.
+ */
+final class VectorApiSimilarityKernel implements SimilarityKernel {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+
+    // Octets chargés par pas : autant de voies que FLOATS (null si la forme n'existe pas)
+    private static final VectorSpecies<Byte> BYTES = byteSpecies();
+
+    private static VectorSpecies<Byte> byteSpecies() {
+        int bits = FLOATS.length() * Byte.SIZE;
+        return bits >= 64 ? VectorSpecies.of(byte.class, VectorShape.forBitSize(bits)) : null;
+    }
+
+    @Override
+    public String name() {
+        return "SIMD " + FLOATS.vectorBitSize() + " bits";
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector acc = FloatVector.zero(FLOATS);
+        int step = FLOATS.length();
+        int i = 0;
+        for (int bound = FLOATS.loopBound(length); i < bound; i += step) {
+            FloatVector va = FloatVector.fromArray(FLOATS, a, aOffset + i);
+            FloatVector vb = FloatVector.fromArray(FLOATS, b, bOffset + i);
+            acc = va.fma(vb, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(float[] a, byte[] b, int bOffset, int length) {
+        if (BYTES == null) {
+            return ScalarSimilarityKernel.INSTANCE.dot(a, b, bOffset, length);
+        }
+        FloatVector acc = FloatVector.zero(FLOATS);
+        int step = FLOATS.length();
+        int i = 0;
+        for (int bound = FLOATS.loopBound(length); i < bound; i += step) {
+            FloatVector vb = (FloatVector) ByteVector.fromArray(BYTES, b, bOffset + i)
+                    .convertShape(VectorOperators.B2F, FLOATS, 0);
+            acc = FloatVector.fromArray(FLOATS, a, i).fma(vb, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * Quatre lignes à la fois : chaque chargement de la requête sert quatre FMA
+     */
+    @Override
+    public void dotBlock(float[] query, float[] block, int rows, int dims, float[] scores) {
+        int step = FLOATS.length();
+        int bound = FLOATS.loopBound(dims);
+        int r = 0;
+        for (; r + 3 < rows; r += 4) {
+            int o0 = r * dims, o1 = o0 + dims, o2 = o1 + dims, o3 = o2 + dims;
+            FloatVector acc0 = FloatVector.zero(FLOATS);
+            FloatVector acc1 = FloatVector.zero(FLOATS);
+            FloatVector acc2 = FloatVector.zero(FLOATS);
+            FloatVector acc3 = FloatVector.zero(FLOATS);
+            int i = 0;
+            for (; i < bound; i += step) {
+                FloatVector q = FloatVector.fromArray(FLOATS, query, i);
+                acc0 = q.fma(FloatVector.fromArray(FLOATS, block, o0 + i), acc0);
+                acc1 = q.fma(FloatVector.fromArray(FLOATS, block, o1 + i), acc1);
+                acc2 = q.fma(FloatVector.fromArray(FLOATS, block, o2 + i), acc2);
+                acc3 = q.fma(FloatVector.fromArray(FLOATS, block, o3 + i), acc3);
+            }
+            float s0 = acc0.reduceLanes(VectorOperators.ADD);
+            float s1 = acc1.reduceLanes(VectorOperators.ADD);
+            float s2 = acc2.reduceLanes(VectorOperators.ADD);
+            float s3 = acc3.reduceLanes(VectorOperators.ADD);
+            for (; i < dims; i++) {
+                s0 += query[i] * block[o0 + i];
+                s1 += query[i] * block[o1 + i];
+                s2 += query[i] * block[o2 + i];
+                s3 += query[i] * block[o3 + i];
+            }
+            scores[r] = s0;
+            scores[r + 1] = s1;
+            scores[r + 2] = s2;
+            scores[r + 3] = s3;
+        }
+        for (; r < rows; r++) {
+            scores[r] = dot(query, 0, block, r * dims, dims);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.education.plateforme.rag;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Recherche exacte des topK vecteurs les plus proches sur un stockage contigu
+ * (FloatBuffer projeté ou tableau), sans objet par chunk.
+ *
+ * Les vecteurs sont copiés par blocs de lignes dans un tableau réutilisé par
+ * thread (copie en masse depuis le fichier projeté), scorés par le noyau SIMD
+ * puis filtrés contre le plus petit score du tas avant toute insertion.
+ */
+public final class VectorSearch {
+
+    // Lignes copiées par bloc : quelques centaines de Ko, reste dans le cache L2
+    private static final int BLOCK_ROWS = 128;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private VectorSearch() {
+        // empêche l'instanciation
+    }
+
+    /**
+     * @param query      vecteur de requête déjà normalisé
+     * @param scoresOut  reçoit les scores, du meilleur au moins bon (peut être null)
+     * @return positions des topK meilleurs vecteurs dont le score atteint threshold
+     */
+    public static int[] topK(SimilarityKernel kernel, FloatBuffer vectors, int count, int dims,
+                             float[] query, int topK, float threshold, float[] scoresOut) {
+        ScoreHeap heap = ScoreHeap.min(topK);
+        Scratch scratch = SCRATCH.get();
+        float[] block = scratch.block(BLOCK_ROWS * dims);
+        float[] scores = scratch.scores(BLOCK_ROWS);
+
+        for (int first = 0; first < count; first += BLOCK_ROWS) {
+            int rows = Math.min(BLOCK_ROWS, count - first);
+            vectors.get(first * dims, block, 0, rows * dims);
+            kernel.dotBlock(query, block, rows, dims, scores);
+            for (int r = 0; r < rows; r++) {
+                float score = scores[r];
+                if (score >= threshold && (heap.size() < topK || score > heap.topScore())) {
+                    heap.offer(first + r, score, topK);
+                }
+            }
+        }
+        return heap.drainBestFirst(scoresOut);
+    }
+
+    /**
+     * Tampons réutilisés d'une recherche à l'autre sur un même thread
+     */
+    private static final class Scratch {
+        private float[] block = new float[0];
+        private float[] scores = new float[0];
+
+        float[] block(int size) {
+            if (block.length < size) {
+                block = new float[size];
+            }
+            return block;
+        }
+
+        float[] scores(int size) {
+            if (scores.length < size) {
+                scores = new float[size];
+            }
+            return scores;
+        }
+    }
+}
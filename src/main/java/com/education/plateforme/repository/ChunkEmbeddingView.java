@@ -0,0 +1,11 @@
+package com.education.plateforme.repository;
+
+/**
+ * Projection d'un chunk réduite à son vecteur et à son cours, pour l'index global
+ */
+public interface ChunkEmbeddingView {
+    Long getId();
+    Long getCourseId();
+    byte[] getEmbedding();
+    String getEmbeddingModel();
+}
@@ -0,0 +1,15 @@
+package com.education.plateforme.repository;
+
+/**
+ * Projection d'un chunk pour l'appariement de la réindexation incrémentale :
+ * ni contenu, ni vecteur, ni cours. embeddingModel n'est renseigné que si le
+ * chunk a un vecteur
+ */
+public interface ChunkMatchView {
+    Long getId();
+    String getContentHash();
+    int getChunkIndex();
+    boolean isIndexed();
+    String getEmbeddingModel();
+    Long getDuplicateOf();
+}
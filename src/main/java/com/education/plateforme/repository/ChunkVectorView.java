@@ -0,0 +1,9 @@
+package com.education.plateforme.repository;
+
+/**
+ * Projection d'un chunk avec son vecteur encodé, pour la reconstruction de l'index d'un cours
+ */
+public interface ChunkVectorView extends ChunkView {
+    byte[] getEmbedding();
+    String getEmbeddingModel();
+}
@@ -0,0 +1,10 @@
+package com.education.plateforme.repository;
+
+/**
+ * Projection d'un chunk sans son cours ni son vecteur : seules ces colonnes sont lues en SQL
+ */
+public interface ChunkView {
+    Long getId();
+    int getChunkIndex();
+    String getContent();
+}
@@ -0,0 +1,10 @@
+package com.education.plateforme.repository;
+
+/**
+ * Nombre de chunks d'un cours et, parmi eux, de quasi-doublons rattachés à un représentant
+ */
+public interface CourseDedupView {
+    Long getCourseId();
+    long getTotal();
+    long getDuplicates();
+}
@@ -0,0 +1,129 @@
+package com.education.plateforme.repository;
+
+import com.education.plateforme.model.DocumentChunk;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Écriture des chunks par lots JDBC.
+ *
+ * Avec GenerationType.IDENTITY, Hibernate insère chaque entité séparément pour
+ * lire son identifiant ; ici un lot entier part en une seule instruction
+ * (rewriteBatchedStatements=true dans l'URL MySQL : INSERT multi-lignes) et les
+ * identifiants générés sont relus en une fois. Participe à la transaction JPA courante.
+ */
+@Repository
+public class DocumentChunkBatchRepository {
+
+    private static final String INSERT_SQL = "insert into document_chunks "
+            + "(course_id, content, chunk_index, content_hash, embedding_vector, embedding_model, indexed, duplicate_of) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_CHUNK_INDEX_SQL = "update document_chunks set chunk_index = ? where id = ?";
+    private static final String UPDATE_DUPLICATE_OF_SQL = "update document_chunks set duplicate_of = ? where id = ?";
+    private static final String UPDATE_CONTENT_HASH_SQL = "update document_chunks set content_hash = ? where id = ?";
+    private static final String MARK_INDEXED_SQL = "update document_chunks set indexed = true where id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insère les chunks en un lot et renseigne leurs identifiants
+     */
+    public void insertAll(List<DocumentChunk> chunks) {
+        if (chunks.isEmpty()) {
+            return;
+        }
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        DocumentChunk chunk = chunks.get(i);
+                        statement.setLong(1, chunk.getCourse().getId());
+                        statement.setString(2, chunk.getContent());
+                        statement.setInt(3, chunk.getChunkIndex());
+                        statement.setString(4, chunk.getContentHash());
+                        if (chunk.getEmbedding() == null) {
+                            statement.setNull(5, Types.BLOB);
+                        } else {
+                            statement.setBytes(5, chunk.getEmbedding());
+                        }
+                        statement.setString(6, chunk.getEmbeddingModel());
+                        statement.setBoolean(7, chunk.isIndexed());
+                        if (chunk.getDuplicateOf() == null) {
+                            statement.setNull(8, Types.BIGINT);
+                        } else {
+                            statement.setLong(8, chunk.getDuplicateOf());
+                        }
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return chunks.size();
+                    }
+                }, keys);
+
+        List<Map<String, Object>> generated = keys.getKeyList();
+        if (generated.size() != chunks.size()) {
+            throw new IllegalStateException("Identifiants générés : " + generated.size() + " pour " + chunks.size() + " chunks");
+        }
+        for (int i = 0; i < chunks.size(); i++) {
+            chunks.get(i).setId(((Number) generated.get(i).values().iterator().next()).longValue());
+        }
+    }
+
+    /**
+     * Nouvelles positions de chunks réutilisés (identifiant → position), en un lot
+     */
+    public void updateChunkIndexes(Map<Long, Integer> positions) {
+        updateById(UPDATE_CHUNK_INDEX_SQL, positions);
+    }
+
+    /**
+     * Nouveaux représentants de quasi-doublons (identifiant → représentant), en un lot
+     */
+    public void updateDuplicateOf(Map<Long, Long> representatives) {
+        updateById(UPDATE_DUPLICATE_OF_SQL, representatives);
+    }
+
+    /**
+     * Empreintes de contenu calculées après coup (identifiant → empreinte), en un lot
+     */
+    public void updateContentHashes(Map<Long, String> hashes) {
+        updateById(UPDATE_CONTENT_HASH_SQL, hashes);
+    }
+
+    /**
+     * Fait entrer dans l'index des chunks enregistrés en attente, en un lot
+     */
+    public void markIndexed(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        ids.forEach(id -> rows.add(new Object[]{id}));
+        jdbcTemplate.batchUpdate(MARK_INDEXED_SQL, rows);
+    }
+
+    private void updateById(String sql, Map<Long, ?> valuesById) {
+        if (valuesById.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(valuesById.size());
+        valuesById.forEach((id, value) -> rows.add(new Object[]{value, id}));
+        jdbcTemplate.batchUpdate(sql, rows);
+    }
+}
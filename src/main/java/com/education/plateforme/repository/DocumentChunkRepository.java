@@ -2,15 +2,109 @@ package com.education.plateforme.repository;
 
 import com.education.plateforme.model.Course;
 import com.education.plateforme.model.DocumentChunk;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, Long> {
+
+    // Lecture ligne à ligne par le pilote MySQL : le résultat n'est jamais entièrement en mémoire
+    String STREAMING_FETCH_SIZE = "" + Integer.MIN_VALUE;
+
     List<DocumentChunk> findByCourse(Course course);
-    List<DocumentChunk> findByCourseAndIndexedTrue(Course course);
-    void deleteByCourse(Course course);
+
+    /**
+     * Suppression en une instruction SQL (une suppression dérivée chargerait puis
+     * supprimerait chaque chunk un par un) ; le contexte de persistance n'est pas mis à jour
+     */
+    @Modifying
+    @Query("delete from DocumentChunk c where c.course = :course")
+    int deleteByCourse(@Param("course") Course course);
+
     long countByCourse(Course course);
-}
\ No newline at end of file
+    long countByCourseAndIndexedTrue(Course course);
+
+    /**
+     * Identifiants des chunks indexés d'un cours, triés (contrôle d'un index trouvé sur disque)
+     */
+    @Query("select c.id from DocumentChunk c where c.course = :course and c.indexed = true order by c.id")
+    List<Long> findIndexedIdsByCourse(@Param("course") Course course);
+
+    /**
+     * Chunks d'un cours pour la réindexation incrémentale, sans contenu ni vecteur
+     * (le modèle n'est lu que si le vecteur existe)
+     */
+    @Query("select c.id as id, c.contentHash as contentHash, c.chunkIndex as chunkIndex, c.indexed as indexed, "
+            + "case when c.embedding is not null then c.embeddingModel end as embeddingModel, "
+            + "c.duplicateOf as duplicateOf from DocumentChunk c where c.course = :course")
+    List<ChunkMatchView> findMatchViewsByCourse(@Param("course") Course course);
+
+    /**
+     * Chunks enregistrés avant l'empreinte de contenu, dont l'empreinte reste à calculer
+     */
+    List<ChunkView> findByCourseAndContentHashIsNull(Course course);
+
+    /**
+     * Contenu et vecteur de chunks donnés (chunks réutilisés recopiés dans un nouvel index)
+     */
+    @Query("select c.id as id, c.chunkIndex as chunkIndex, c.content as content, "
+            + "c.embedding as embedding, c.embeddingModel as embeddingModel from DocumentChunk c where c.id in :ids")
+    List<ChunkVectorView> findVectorsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Premiers chunks indexés d'un cours, dans l'ordre, limités en SQL (Pageable)
+     */
+    List<ChunkView> findByCourseAndIndexedTrueOrderByChunkIndexAsc(Course course, Pageable pageable);
+
+
+    /**
+     * Chunks indexés dont le vecteur manque ou vient d'un autre modèle
+     */
+    @Query("select c.id as id, c.chunkIndex as chunkIndex, c.content as content from DocumentChunk c "
+            + "where c.course = :course and c.indexed = true "
+            + "and (c.embedding is null or c.embeddingModel is null or c.embeddingModel <> :model) "
+            + "order by c.chunkIndex")
+    List<ChunkView> findStaleByCourse(@Param("course") Course course, @Param("model") String model);
+
+    /**
+     * Chunks et quasi-doublons de chaque cours indexé, en une requête agrégée
+     */
+    @Query("select c.course.id as courseId, count(c) as total, "
+            + "sum(case when c.duplicateOf is not null then 1 else 0 end) as duplicates "
+            + "from DocumentChunk c group by c.course.id")
+    List<CourseDedupView> countDuplicatesByCourse();
+
+    @Modifying
+    @Query("update DocumentChunk c set c.embedding = :embedding, c.embeddingModel = :model where c.id = :id")
+    int updateEmbedding(@Param("id") Long id, @Param("embedding") byte[] embedding, @Param("model") String model);
+
+    /**
+     * Chunks indexés d'un cours avec leur vecteur, dans l'ordre, lus en flux
+     * (à consommer dans une transaction et à fermer)
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE))
+    @Query("select c.id as id, c.chunkIndex as chunkIndex, c.content as content, "
+            + "c.embedding as embedding, c.embeddingModel as embeddingModel from DocumentChunk c "
+            + "where c.course = :course and c.indexed = true order by c.chunkIndex")
+    Stream<ChunkVectorView> streamIndexedByCourse(@Param("course") Course course);
+
+    /**
+     * Vecteurs des chunks indexés des cours publiés, sans texte, lus en flux
+     * (à consommer dans une transaction et à fermer)
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE))
+    @Query("select c.id as id, c.course.id as courseId, c.embedding as embedding, "
+            + "c.embeddingModel as embeddingModel from DocumentChunk c where c.indexed = true and c.course.published = true")
+    Stream<ChunkEmbeddingView> streamPublishedIndexedEmbeddings();
+}
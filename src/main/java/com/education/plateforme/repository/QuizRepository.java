@@ -3,9 +3,13 @@ package com.education.plateforme.repository;
 import com.education.plateforme.model.Course;
 import com.education.plateforme.model.Quiz;
 import com.education.plateforme.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -13,4 +17,11 @@ public interface QuizRepository extends JpaRepository<Quiz, Long> {
     List<Quiz> findByStudentOrderByAttemptDateDesc(User student);
     List<Quiz> findByCourseAndStudentOrderByAttemptDateDesc(Course course, User student);
     List<Quiz> findByStudentAndCompletedTrueOrderByAttemptDateDesc(User student);
+
+    /**
+     * Cours publiés ayant le plus de quiz depuis la date donnée, du plus utilisé au moins utilisé
+     */
+    @Query("select q.course.id from Quiz q where q.attemptDate >= :since and q.course.published = true "
+            + "group by q.course.id order by count(q) desc")
+    List<Long> findMostQuizzedPublishedCourseIds(@Param("since") LocalDateTime since, Pageable pageable);
 }
\ No newline at end of file
@@ -1,19 +1,25 @@
 package com.education.plateforme.service;
 
 import com.education.plateforme.dto.QuizDTO;
+import com.education.plateforme.dto.QuizQuestionDTO;
 import com.education.plateforme.model.Course;
 import com.education.plateforme.model.Quiz;
 import com.education.plateforme.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @Transactional
 public class AIAgentService {
 
+    private record QuizPlan(String difficulty, int numberOfQuestions, int timeLimitMinutes) {
+    }
+
     @Autowired
     private QuizGenerationService quizGenerationService;
 
@@ -23,10 +29,59 @@ public class AIAgentService {
     @Autowired
     private RAGService ragService;
 
+    @Autowired
+    private QuizPoolService quizPoolService;
+
     /**
-     * L'agent IA décide des paramètres du quiz et le génère
+     * L'agent IA décide des paramètres du quiz et le génère.
+     *
+     * Hors transaction : chaque étape ouvre la sienne, et aucune ne reste
+     * ouverte pendant l'appel au modèle (voir QuizGenerationService)
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public QuizDTO generateAdaptiveQuiz(Course course, User student) {
+        QuizPlan plan = planQuiz(course, student);
+
+        // 5. Servir un jeu de questions pré-généré pour ce niveau s'il y en a un
+        Optional<List<QuizQuestionDTO>> pooled = quizPoolService.claim(course, plan.difficulty());
+        if (pooled.isPresent()) {
+            return quizGenerationService.saveQuiz(course, student, plan.difficulty(), plan.timeLimitMinutes(), pooled.get());
+        }
+
+        // 6. Sinon générer le quiz avec les paramètres optimaux
+        return quizGenerationService.generateQuiz(
+                course, 
+                student, 
+                plan.difficulty(), 
+                plan.numberOfQuestions(), 
+                plan.timeLimitMinutes()
+        );
+    }
+
+    /**
+     * Comme generateAdaptiveQuiz, mais chaque question est transmise au listener dès
+     * qu'elle est prête ; le quiz n'est enregistré qu'une fois toutes les questions reçues.
+     * Si le listener lève une exception (client parti), la génération s'arrête sans rien enregistrer
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public QuizDTO streamAdaptiveQuiz(Course course, User student, QuizStreamListener listener) {
+        QuizPlan plan = planQuiz(course, student);
+        listener.onStart(plan.difficulty(), plan.numberOfQuestions(), plan.timeLimitMinutes());
+
+        // Un jeu pré-généré est transmis d'un coup, sinon les questions arrivent avec la réponse du modèle
+        List<QuizQuestionDTO> questions = quizPoolService.claim(course, plan.difficulty()).orElse(null);
+        if (questions != null) {
+            for (int i = 0; i < questions.size(); i++) {
+                listener.onQuestion(i, questions.get(i));
+            }
+        } else {
+            questions = quizGenerationService.streamQuestions(course, plan.difficulty(), plan.numberOfQuestions(),
+                    LlmCallScheduler.Caller.student(student), listener);
+        }
+        return quizGenerationService.saveQuiz(course, student, plan.difficulty(), plan.timeLimitMinutes(), questions);
+    }
+
+    private QuizPlan planQuiz(Course course, User student) {
         // 1. Vérifier que le cours est indexé
         if (!ragService.isCourseIndexed(course)) {
             ragService.indexCourse(course);
@@ -41,14 +96,7 @@ public class AIAgentService {
         // 4. Déterminer la limite de temps
         int timeLimitMinutes = determineTimeLimit(recommendedDifficulty, numberOfQuestions);
 
-        // 5. Générer le quiz avec les paramètres optimaux
-        return quizGenerationService.generateQuiz(
-                course, 
-                student, 
-                recommendedDifficulty, 
-                numberOfQuestions, 
-                timeLimitMinutes
-        );
+        return new QuizPlan(recommendedDifficulty, numberOfQuestions, timeLimitMinutes);
     }
 
     /**
@@ -83,7 +131,7 @@ public class AIAgentService {
         }
     }
 
-    private int determineQuestionCount(String difficulty) {
+    static int determineQuestionCount(String difficulty) {
         return switch (difficulty) {
             case "EASY" -> 5;
             case "MEDIUM" -> 7;
@@ -0,0 +1,8 @@
+package com.education.plateforme.service;
+
+/**
+ * Publié après la suppression d'un cours (après commit) : ses index, caches et
+ * quiz pré-générés ne doivent plus être servis
+ */
+public record CourseDeletedEvent(Long courseId) {
+}
@@ -0,0 +1,8 @@
+package com.education.plateforme.service;
+
+/**
+ * Publié quand le contexte d'un cours jamais indexé est demandé : son indexation
+ * est planifiée en arrière-plan au lieu de bloquer la requête
+ */
+public record CourseIndexRequestedEvent(Long courseId) {
+}
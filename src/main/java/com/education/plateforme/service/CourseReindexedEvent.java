@@ -0,0 +1,8 @@
+package com.education.plateforme.service;
+
+/**
+ * Publié quand une nouvelle version de l'index d'un cours est visible (après commit) :
+ * tout ce qui a été produit à partir de l'ancien contenu est à jeter
+ */
+public record CourseReindexedEvent(Long courseId, long version) {
+}
@@ -3,12 +3,15 @@ package com.education.plateforme.service;
 import com.education.plateforme.model.Course;
 import com.education.plateforme.model.User;
 import com.education.plateforme.repository.CourseRepository;
+import com.education.plateforme.repository.DocumentChunkRepository;
 import com.education.plateforme.repository.UserRepository;
 import com.education.plateforme.util.MarkdownUtils;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.util.Optional;
@@ -23,6 +26,12 @@ public class CourseService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private DocumentChunkRepository documentChunkRepository;
+
+    @Autowired
+    private RAGService ragService;
+
     public Course createCourse(Course course, User admin) {
         course.setCreatedBy(admin);
         course.setPublished(false);
@@ -43,7 +52,10 @@ public class CourseService {
     public void deleteCourse(Long id) {
         Course course = courseRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Cours non trouvé"));
+        // Chunks supprimés en une instruction (ils ne sont pas en cascade depuis le cours)
+        documentChunkRepository.deleteByCourse(course);
         courseRepository.delete(course);
+        afterCommit(() -> ragService.onCourseDeleted(id));
     }
 
     public Course publishCourse(Long id) {
@@ -55,14 +67,18 @@ public class CourseService {
         }
         
         course.setPublished(true);
-        return courseRepository.save(course);
+        Course saved = courseRepository.save(course);
+        afterCommit(() -> ragService.onCoursePublished(saved));
+        return saved;
     }
 
     public Course unpublishCourse(Long id) {
         Course course = courseRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Cours non trouvé"));
         course.setPublished(false);
-        return courseRepository.save(course);
+        Course saved = courseRepository.save(course);
+        afterCommit(() -> ragService.onCourseUnpublished(id));
+        return saved;
     }
 
     public void enrollStudent(Long courseId, Long studentId) {
@@ -122,4 +138,27 @@ public class CourseService {
         Course course = courseRepository.findById(courseId).orElse(null);
         return course != null && course.getEnrolledStudents().contains(student);
     }
-}
\ No newline at end of file
+
+    /**
+     * Exécute l'action après le commit de la transaction courante (tout de suite hors transaction) :
+     * les index en mémoire ne reflètent que des changements validés en base. L'action ouvre sa
+     * propre transaction (REQUIRES_NEW côté RAGService) ; son échec est journalisé sans faire
+     * échouer la requête, dont les changements sont déjà validés
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Mise à jour des index après commit impossible : " + e.getMessage());
+                }
+            }
+        });
+    }
+}
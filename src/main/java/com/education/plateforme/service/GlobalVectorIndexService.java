@@ -0,0 +1,212 @@
+package com.education.plateforme.service;
+
+import com.education.plateforme.rag.HnswIndex;
+import com.education.plateforme.rag.MappedVectorStore;
+import com.education.plateforme.repository.ChunkEmbeddingView;
+import com.education.plateforme.repository.DocumentChunkRepository;
+import com.education.plateforme.util.EmbeddingCodec;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Index HNSW global sur les chunks des cours publiés. Il ne sert aucune recherche
+ * des étudiants (StudentSearchService interroge l'index exact de chaque cours) :
+ * il est gardé à jour pour mesurer, depuis l'administration, le rappel et la
+ * latence d'une recherche approchée face à la force brute. Un cours dépublié ou
+ * supprimé en est retiré ; quand les pierres tombales dépassent compaction-ratio
+ * des nœuds, le graphe est reconstruit sans elles.
+ */
+@Service
+@Transactional(readOnly = true)
+public class GlobalVectorIndexService {
+
+    public enum Mode { HNSW, BRUTE_FORCE }
+
+    public record RecallReport(int topK, int efSearch, double recall, long annMicros, long exactMicros) {
+    }
+
+    @Autowired
+    private DocumentChunkRepository documentChunkRepository;
+
+    @Autowired
+    private EmbeddingModel embeddingModel;
+
+    @Value("${rag.embedding.model-version:transformers/all-MiniLM-L6-v2}")
+    private String embeddingModelVersion;
+
+    @Value("${rag.ann.mode:HNSW}")
+    private Mode mode;
+
+    @Value("${rag.ann.m:16}")
+    private int m;
+
+    @Value("${rag.ann.ef-construction:200}")
+    private int efConstruction;
+
+    @Value("${rag.ann.ef-search:64}")
+    private int efSearch;
+
+    @Value("${rag.ann.exact-filter-threshold:5000}")
+    private int exactFilterThreshold;
+
+    // Part de nœuds supprimés au-delà de laquelle le graphe est reconstruit
+    @Value("${rag.ann.compaction-ratio:0.3}")
+    private double compactionRatio;
+
+    // Nombre minimal de nœuds supprimés avant d'envisager une reconstruction
+    @Value("${rag.ann.compaction-min-deleted:1000}")
+    private int compactionMinDeleted;
+
+    private volatile HnswIndex index;
+    private volatile boolean loaded = false;
+
+    public List<HnswIndex.Hit> search(float[] query, int topK, Collection<Long> courseIds, Mode searchMode, int ef) {
+        HnswIndex current = getIndex();
+        if (current == null) {
+            return Collections.emptyList();
+        }
+        return searchMode == Mode.BRUTE_FORCE
+                ? current.bruteForce(query, topK, courseIds)
+                : current.search(query, topK, ef, courseIds);
+    }
+
+    /**
+     * Mesure le rappel@K de l'index HNSW par rapport à la recherche exacte
+     */
+    public RecallReport measureRecall(String query, int topK, Collection<Long> courseIds, Integer ef) {
+        int effectiveEf = ef != null ? ef : efSearch;
+        float[] vector = embeddingModel.embed(query);
+
+        long start = System.nanoTime();
+        List<HnswIndex.Hit> approximate = search(vector, topK, courseIds, Mode.HNSW, effectiveEf);
+        long annMicros = (System.nanoTime() - start) / 1000;
+
+        start = System.nanoTime();
+        List<HnswIndex.Hit> exact = search(vector, topK, courseIds, Mode.BRUTE_FORCE, effectiveEf);
+        long exactMicros = (System.nanoTime() - start) / 1000;
+
+        Set<Long> expected = exact.stream().map(HnswIndex.Hit::chunkId).collect(Collectors.toSet());
+        long found = approximate.stream().filter(hit -> expected.contains(hit.chunkId())).count();
+        double recall = expected.isEmpty() ? 1.0 : (double) found / expected.size();
+
+        System.out.println("🎯 Rappel@" + topK + " HNSW (ef=" + effectiveEf + ") : " + recall
+                + " - " + annMicros + " µs contre " + exactMicros + " µs en force brute");
+        return new RecallReport(topK, effectiveEf, recall, annMicros, exactMicros);
+    }
+
+    /**
+     * Met l'index à jour avec la nouvelle version publiée d'un cours : seuls les
+     * chunks apparus sont insérés et seuls les chunks disparus sont supprimés
+     * (un chunk conservé garde son identifiant et son contenu, donc son vecteur)
+     */
+    public synchronized void onCourseIndexed(Long courseId, MappedVectorStore store) {
+        if (!loaded) {
+            return; // l'index sera construit à la première recherche, depuis la base
+        }
+        HnswIndex current = index;
+        if (current == null && store.size() > 0) {
+            current = newIndex(store.getDimensions());
+            index = current;
+        }
+        if (current == null) {
+            return;
+        }
+        Set<Long> published = new HashSet<>(store.size() * 2);
+        float[] vector = new float[store.getDimensions()];
+        int added = 0;
+        for (int i = 0; i < store.size(); i++) {
+            long chunkId = store.chunkId(i);
+            published.add(chunkId);
+            if (!current.contains(chunkId)) {
+                current.add(chunkId, courseId, store.vector(i, vector));
+                added++;
+            }
+        }
+        int removed = 0;
+        for (long chunkId : current.chunkIdsOfCourse(courseId)) {
+            if (!published.contains(chunkId) && current.remove(chunkId)) {
+                removed++;
+            }
+        }
+        System.out.println("🕸️ Index HNSW mis à jour pour le cours " + courseId + " : +" + added + " / -" + removed + " chunks");
+        compactIfNeeded(current);
+    }
+
+    /**
+     * Retire tous les chunks d'un cours supprimé ou dépublié
+     */
+    public synchronized void onCourseRemoved(Long courseId) {
+        HnswIndex current = index;
+        if (current == null) {
+            return;
+        }
+        int removed = current.removeCourse(courseId);
+        if (removed > 0) {
+            System.out.println("🕸️ Cours " + courseId + " retiré de l'index HNSW : -" + removed + " chunks");
+            compactIfNeeded(current);
+        }
+    }
+
+    /**
+     * Reconstruit le graphe sans ses pierres tombales quand elles deviennent trop nombreuses
+     * (appelé sous le verrou de l'instance : aucune mise à jour n'est perdue pendant la copie)
+     */
+    private void compactIfNeeded(HnswIndex current) {
+        int deleted = current.deletedCount();
+        if (deleted < compactionMinDeleted || deleted < compactionRatio * (current.size() + deleted)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        index = current.compacted();
+        System.out.println("🧹 Index HNSW compacté : " + deleted + " nœuds supprimés retirés en "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private HnswIndex getIndex() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    index = buildFromDatabase();
+                    loaded = true;
+                }
+            }
+        }
+        return index;
+    }
+
+    private HnswIndex buildFromDatabase() {
+        long start = System.currentTimeMillis();
+        HnswIndex built = null;
+        int skipped = 0;
+        // Projection lue en flux : ni le texte des chunks ni les cours ne sont chargés
+        try (Stream<ChunkEmbeddingView> chunks = documentChunkRepository.streamPublishedIndexedEmbeddings()) {
+            Iterator<ChunkEmbeddingView> iterator = chunks.iterator();
+            while (iterator.hasNext()) {
+                ChunkEmbeddingView chunk = iterator.next();
+                if (chunk.getEmbedding() == null || !embeddingModelVersion.equals(chunk.getEmbeddingModel())) {
+                    skipped++; // recalculé à la prochaine initialisation du cours
+                    continue;
+                }
+                float[] vector = EmbeddingCodec.decode(chunk.getEmbedding());
+                if (built == null) {
+                    built = newIndex(vector.length);
+                }
+                built.add(chunk.getId(), chunk.getCourseId(), vector);
+            }
+        }
+        System.out.println("🕸️ Index HNSW global construit : " + (built == null ? 0 : built.size()) + " vecteurs en "
+                + (System.currentTimeMillis() - start) + " ms (" + skipped + " chunks sans vecteur à jour)");
+        return built;
+    }
+
+    private HnswIndex newIndex(int dimensions) {
+        return new HnswIndex(dimensions, m, efConstruction, exactFilterThreshold);
+    }
+}
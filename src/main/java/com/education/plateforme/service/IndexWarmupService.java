@@ -0,0 +1,160 @@
+package com.education.plateforme.service;
+
+import com.education.plateforme.model.Course;
+import com.education.plateforme.repository.QuizRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Préchargement, au démarrage, des index des cours les plus utilisés : le
+ * premier étudiant après un déploiement n'attend plus initializeVectorStore.
+ *
+ * Le préchargement tourne en arrière-plan, sans retarder le démarrage ; son
+ * avancement alimente l'indicateur de disponibilité (readiness) pour que le
+ * répartiteur de charge n'envoie du trafic qu'une fois ces index chargés.
+ */
+@Service
+public class IndexWarmupService {
+
+    public enum State { PENDING, RUNNING, DONE, DISABLED }
+
+    public record WarmupStatus(State state, int total, int loaded, int failed, long elapsedMillis,
+                               boolean ready, List<Long> courseIds) {
+    }
+
+    @Autowired
+    private QuizRepository quizRepository;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private RAGService ragService;
+
+    @Value("${rag.warmup.enabled:true}")
+    private boolean enabled;
+
+    // Nombre de cours publiés préchargés, par nombre de quiz récents décroissant
+    @Value("${rag.warmup.course-count:20}")
+    private int courseCount;
+
+    // Fenêtre de calcul de l'usage des cours
+    @Value("${rag.warmup.lookback-days:30}")
+    private int lookbackDays;
+
+    // Chargements simultanés (lecture disque et base, éventuellement embeddings manquants)
+    @Value("${rag.warmup.threads:4}")
+    private int threads;
+
+    // Au-delà, l'application se déclare prête même si le préchargement n'est pas fini
+    @Value("${rag.warmup.timeout-seconds:300}")
+    private long timeoutSeconds;
+
+    private volatile State state = State.PENDING;
+    private volatile List<Long> courseIds = List.of();
+    private volatile long startedAtNanos;
+    private volatile long finishedAtNanos;
+    private final AtomicInteger loaded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private ExecutorService executor;
+
+    /**
+     * Lance le préchargement une fois l'application démarrée et rend la main aussitôt
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWarmup() {
+        if (!enabled) {
+            state = State.DISABLED;
+            return;
+        }
+        startedAtNanos = System.nanoTime();
+        List<Long> hot;
+        try {
+            hot = quizRepository.findMostQuizzedPublishedCourseIds(
+                    LocalDateTime.now().minusDays(lookbackDays), PageRequest.of(0, courseCount));
+        } catch (Exception e) {
+            // Sans liste de cours, rien à précharger : ne pas bloquer la disponibilité
+            System.err.println("Préchargement des index impossible : " + e.getMessage());
+            hot = List.of();
+        }
+        courseIds = List.copyOf(hot);
+        if (hot.isEmpty()) {
+            finish();
+            return;
+        }
+        state = State.RUNNING;
+        System.out.println("🔥 Préchargement des index de " + hot.size() + " cours : " + hot);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, hot.size())), runnable -> {
+            Thread thread = new Thread(runnable, "index-warmup-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<CompletableFuture<Void>> loads = new ArrayList<>(hot.size());
+        for (Long courseId : hot) {
+            loads.add(CompletableFuture.runAsync(() -> warm(courseId), executor));
+        }
+        CompletableFuture.allOf(loads.toArray(new CompletableFuture[0])).whenComplete((ignored, error) -> {
+            finish();
+            executor.shutdown();
+        });
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void warm(Long courseId) {
+        try {
+            Course course = courseService.getCourseById(courseId)
+                    .orElseThrow(() -> new RuntimeException("Cours non trouvé"));
+            ragService.getSnapshot(course);
+            loaded.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            System.err.println("Préchargement de l'index du cours " + courseId + " en échec : " + e.getMessage());
+        }
+    }
+
+    private void finish() {
+        finishedAtNanos = System.nanoTime();
+        state = State.DONE;
+        System.out.println("🔥 Préchargement terminé : " + loaded.get() + " index chargés, " + failed.get()
+                + " en échec, en " + (finishedAtNanos - startedAtNanos) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Prêt quand le préchargement est terminé (ou désactivé), ou après le délai maximum
+     */
+    public boolean isReady() {
+        State current = state;
+        if (current == State.DONE || current == State.DISABLED) {
+            return true;
+        }
+        return current == State.RUNNING && System.nanoTime() - startedAtNanos > timeoutSeconds * 1_000_000_000L;
+    }
+
+    public WarmupStatus getStatus() {
+        State current = state;
+        long end = current == State.DONE ? finishedAtNanos : System.nanoTime();
+        long elapsed = current == State.PENDING || current == State.DISABLED ? 0 : (end - startedAtNanos) / 1_000_000;
+        return new WarmupStatus(current, courseIds.size(), loaded.get(), failed.get(), elapsed, isReady(), courseIds);
+    }
+}
@@ -0,0 +1,267 @@
+package com.education.plateforme.service;
+
+import com.education.plateforme.model.Course;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * File des tâches d'indexation : l'indexation d'un cours tourne en arrière-plan
+ * sur un pool borné et son avancement est consultable par identifiant de tâche.
+ *
+ * Pas de @Transactional ici : chaque exécution ouvre sa propre transaction
+ * via RAGService, hors du thread de la requête HTTP.
+ */
+@Service
+public class IndexingJobService {
+
+    public enum State { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    public record JobStatus(String jobId, Long courseId, State state, int done, int total,
+                            Long etaSeconds, Instant submittedAt, Instant finishedAt, String error) {
+    }
+
+    @Autowired
+    private RAGService ragService;
+
+    @Autowired
+    private CourseService courseService;
+
+    // Indexations exécutées en même temps (chacune utilise déjà tous les cœurs pour les embeddings)
+    @Value("${rag.indexing.max-concurrent-jobs:2}")
+    private int maxConcurrentJobs;
+
+    // Tâches en attente au-delà desquelles une nouvelle demande est refusée
+    @Value("${rag.indexing.queue-capacity:50}")
+    private int queueCapacity;
+
+    // Tâches terminées conservées pour consultation
+    @Value("${rag.indexing.history-size:200}")
+    private int historySize;
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, IndexingJob> jobs = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    // Tâche en attente ou en cours par cours : une nouvelle demande s'y rattache
+    private final ConcurrentMap<Long, IndexingJob> activeByCourse = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void initExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "indexing-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Indexation demandée par la lecture d'un cours jamais indexé (contexte de quiz) :
+     * planifiée comme une demande de l'administration, sans faire échouer la lecture
+     */
+    @EventListener
+    public void onIndexRequested(CourseIndexRequestedEvent event) {
+        try {
+            submit(event.courseId());
+        } catch (RuntimeException e) {
+            System.err.println("Indexation du cours " + event.courseId() + " non planifiée : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Planifie l'indexation d'un cours et renvoie immédiatement la tâche.
+     *
+     * Si une tâche est déjà en attente pour ce cours, elle est renvoyée telle
+     * quelle ; si elle est en cours, elle sera relancée une fois à la fin pour
+     * prendre en compte le contenu le plus récent (réindexation incrémentale).
+     * NoSuchElementException si le cours n'existe pas, RejectedExecutionException
+     * si la file d'indexation est pleine.
+     */
+    public JobStatus submit(Long courseId) {
+        courseService.getCourseById(courseId)
+                .orElseThrow(() -> new NoSuchElementException("Cours non trouvé"));
+
+        IndexingJob created = new IndexingJob(courseId);
+        IndexingJob job = activeByCourse.compute(courseId, (id, active) -> {
+            if (active == null) {
+                return created;
+            }
+            if (active.state == State.RUNNING) {
+                active.rerunRequested = true;
+            }
+            return active;
+        });
+        if (job != created) {
+            System.out.println("🔁 Indexation du cours " + courseId + " déjà planifiée (tâche " + job.id + ")");
+            return job.toStatus();
+        }
+
+        remember(job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            activeByCourse.remove(courseId, job);
+            job.fail("File d'indexation pleine, réessayez plus tard");
+            throw new RejectedExecutionException("File d'indexation pleine (" + queueCapacity + " tâches en attente)");
+        }
+        System.out.println("📥 Indexation du cours " + courseId + " planifiée (tâche " + job.id + ")");
+        return job.toStatus();
+    }
+
+    public Optional<JobStatus> getStatus(String jobId) {
+        IndexingJob job = jobs.get(jobId);
+        return job == null ? Optional.empty() : Optional.of(job.toStatus());
+    }
+
+    /**
+     * Tâches connues, de la plus récente à la plus ancienne
+     */
+    public List<JobStatus> getRecentJobs() {
+        List<JobStatus> statuses = new ArrayList<>();
+        synchronized (jobs) {
+            jobs.values().forEach(job -> statuses.add(job.toStatus()));
+        }
+        Collections.reverse(statuses);
+        return statuses;
+    }
+
+    private void run(IndexingJob job) {
+        try {
+            do {
+                job.start();
+                Course course = courseService.getCourseById(job.courseId)
+                        .orElseThrow(() -> new RuntimeException("Cours non trouvé"));
+                ragService.indexCourse(course, job::progress);
+            } while (job.consumeRerun());
+            job.complete();
+            System.out.println("🏁 Tâche d'indexation " + job.id + " terminée en "
+                    + Duration.between(job.startedAt, job.finishedAt).toMillis() + " ms");
+        } catch (Exception e) {
+            job.fail(e.getMessage());
+            System.err.println("Tâche d'indexation " + job.id + " en échec : " + e.getMessage());
+        } finally {
+            activeByCourse.remove(job.courseId, job);
+        }
+    }
+
+    private void remember(IndexingJob job) {
+        synchronized (jobs) {
+            jobs.put(job.id, job);
+            Iterator<IndexingJob> eldest = jobs.values().iterator();
+            while (jobs.size() > historySize && eldest.hasNext()) {
+                IndexingJob candidate = eldest.next();
+                if (candidate.isFinished()) {
+                    eldest.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * État mutable d'une tâche, lu par les requêtes de suivi
+     */
+    private class IndexingJob {
+
+        private final String id = UUID.randomUUID().toString();
+        private final Long courseId;
+        private final Instant submittedAt = Instant.now();
+        private volatile State state = State.QUEUED;
+        private volatile boolean rerunRequested = false;
+        private volatile int done = 0;
+        private volatile int total = 0;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile String error;
+        // Point de départ du calcul de l'ETA : chunks réutilisés exclus du débit
+        private volatile int doneAtFirstUpdate = -1;
+        private volatile long firstUpdateNanos;
+
+        IndexingJob(Long courseId) {
+            this.courseId = courseId;
+        }
+
+        void start() {
+            startedAt = Instant.now();
+            state = State.RUNNING;
+            done = 0;
+            total = 0;
+            doneAtFirstUpdate = -1;
+        }
+
+        void progress(int done, int total) {
+            if (doneAtFirstUpdate < 0) {
+                doneAtFirstUpdate = done;
+                firstUpdateNanos = System.nanoTime();
+            }
+            this.total = total;
+            this.done = done;
+        }
+
+        /**
+         * Consomme une demande de relance ; sinon retire la tâche des tâches actives,
+         * atomiquement, pour qu'aucune demande concurrente ne soit perdue
+         */
+        boolean consumeRerun() {
+            boolean[] rerun = {false};
+            activeByCourse.computeIfPresent(courseId, (id, active) -> {
+                if (active != this) {
+                    return active;
+                }
+                if (rerunRequested) {
+                    rerunRequested = false;
+                    rerun[0] = true;
+                    return active;
+                }
+                return null;
+            });
+            return rerun[0];
+        }
+
+        void complete() {
+            finishedAt = Instant.now();
+            state = State.COMPLETED;
+        }
+
+        void fail(String message) {
+            finishedAt = Instant.now();
+            error = message;
+            state = State.FAILED;
+        }
+
+        boolean isFinished() {
+            return state == State.COMPLETED || state == State.FAILED;
+        }
+
+        Long etaSeconds() {
+            if (state != State.RUNNING || doneAtFirstUpdate < 0) {
+                return null;
+            }
+            int processed = done - doneAtFirstUpdate;
+            if (processed <= 0) {
+                return null;
+            }
+            double secondsPerChunk = (System.nanoTime() - firstUpdateNanos) / 1e9 / processed;
+            return Math.round((total - done) * secondsPerChunk);
+        }
+
+        JobStatus toStatus() {
+            return new JobStatus(id, courseId, state, done, total, etaSeconds(), submittedAt, finishedAt, error);
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.education.plateforme.service;
+
+import com.education.plateforme.model.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Ordonnanceur de tous les appels au modèle de chat : au plus maxConcurrent
+ * appels simultanés, les autres attendent leur tour dans une file.
+ *
+ * La file est équitable par appelant : chaque étudiant a sa propre file et les
+ * étudiants sont servis à tour de rôle, si bien qu'un étudiant qui multiplie
+ * les demandes ne retarde pas les autres. Les appels de fond (pré-génération
+ * des quiz) ne passent qu'en l'absence d'appel interactif en attente.
+ *
+ * Chaque appel a une échéance : une demande dont l'attente estimée la dépasse
+ * est refusée tout de suite, une demande encore en file à l'échéance est
+ * abandonnée. Sur une erreur de limite de débit (HTTP 429), l'appel est relancé
+ * après un délai exponentiel à gigue aléatoire, et aucun nouvel appel ne part
+ * pendant ce délai : tous les appelants ralentissent ensemble au lieu
+ * d'insister auprès du fournisseur.
+ */
+@Service
+public class LlmCallScheduler {
+
+    public enum Priority { INTERACTIVE, BACKGROUND }
+
+    /**
+     * Appelant servi équitablement : un étudiant, ou une tâche de fond
+     */
+    public record Caller(String owner, Priority priority) {
+
+        public static Caller student(User student) {
+            return new Caller("student-" + student.getId(), Priority.INTERACTIVE);
+        }
+
+        public static Caller background(String task) {
+            return new Caller(task, Priority.BACKGROUND);
+        }
+    }
+
+    public record SchedulerStats(int maxConcurrent, int active, int queuedInteractive, int queuedBackground,
+                                 int waitingCallers, long granted, long rejected, long timedOut, long rateLimited,
+                                 long failures, double averageWaitMillis, long maxWaitMillis,
+                                 double averageCallMillis, long pausedForMillis) {
+    }
+
+    private static final Pattern RATE_LIMITED = Pattern.compile("(?i)(^|\\D)429(\\D|$)|too many requests|rate.?limit");
+
+    // Appels simultanés au modèle, toutes origines confondues
+    @Value("${llm.scheduler.max-concurrent:4}")
+    private int maxConcurrent;
+
+    // Attente maximale d'un appel interactif (file + relances après un 429)
+    @Value("${llm.scheduler.queue-timeout-ms:60000}")
+    private long queueTimeoutMillis;
+
+    // Attente maximale d'un appel de fond
+    @Value("${llm.scheduler.background-queue-timeout-ms:600000}")
+    private long backgroundQueueTimeoutMillis;
+
+    // Relances après une erreur de limite de débit
+    @Value("${llm.scheduler.max-retries:4}")
+    private int maxRetries;
+
+    // Délai avant la première relance, doublé à chaque relance (gigue aléatoire comprise)
+    @Value("${llm.scheduler.backoff-initial-ms:1000}")
+    private long backoffInitialMillis;
+
+    @Value("${llm.scheduler.backoff-max-ms:30000}")
+    private long backoffMaxMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Files par appelant, dans l'ordre de service (un appelant servi repasse en dernier)
+    private final Map<String, ArrayDeque<Ticket>> interactive = new LinkedHashMap<>();
+    private final Map<String, ArrayDeque<Ticket>> background = new LinkedHashMap<>();
+
+    // Champs suivants protégés par lock
+    private int running;
+    private int queuedInteractive;
+    private int queuedBackground;
+    private long pausedUntil = System.nanoTime();
+    private long granted;
+    private long rejected;
+    private long timedOut;
+    private long rateLimited;
+    private long failures;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    private long calls;
+    private double averageCallNanos;
+
+    private final class Ticket {
+        private final long enqueuedAt = System.nanoTime();
+        private final long deadline;
+        private final Condition ready = lock.newCondition();
+        private boolean granted;
+        private boolean expired;
+
+        private Ticket(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * Exécute un appel au modèle quand vient son tour, avec relances sur limite de débit
+     */
+    public <T> T call(Caller caller, Supplier<T> call) {
+        long timeout = caller.priority() == Priority.INTERACTIVE ? queueTimeoutMillis : backgroundQueueTimeoutMillis;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        for (int attempt = 0; ; attempt++) {
+            acquire(caller, deadline);
+            long start = System.nanoTime();
+            long delay;
+            try {
+                T result = call.get();
+                recordCall(System.nanoTime() - start);
+                return result;
+            } catch (RuntimeException e) {
+                delay = retryDelay(e, attempt, deadline);
+            } finally {
+                release();
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Appel au modèle interrompu", e);
+            }
+        }
+    }
+
+    private void acquire(Caller caller, long deadline) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (running < maxConcurrent && now >= pausedUntil && queuedInteractive + queuedBackground == 0) {
+                running++;
+                recordWait(0);
+                return;
+            }
+            if (caller.priority() == Priority.INTERACTIVE && now + estimatedWait() > deadline) {
+                rejected++;
+                throw new RuntimeException("Trop de demandes en cours auprès du modèle, réessayez dans quelques instants");
+            }
+
+            Ticket ticket = new Ticket(deadline);
+            queues(caller.priority()).computeIfAbsent(caller.owner(), owner -> new ArrayDeque<>()).addLast(ticket);
+            if (caller.priority() == Priority.INTERACTIVE) {
+                queuedInteractive++;
+            } else {
+                queuedBackground++;
+            }
+            try {
+                while (!ticket.granted) {
+                    long remaining = ticket.deadline - System.nanoTime();
+                    if (ticket.expired || remaining <= 0) {
+                        if (!ticket.expired) {
+                            dequeue(caller, ticket);
+                        }
+                        timedOut++;
+                        throw new RuntimeException("Le modèle est trop sollicité, réessayez dans quelques instants");
+                    }
+                    // Réveil à la fin d'une pause après un 429, pour relancer la distribution
+                    long pause = pausedUntil - System.nanoTime();
+                    ticket.ready.awaitNanos(pause > 0 ? Math.min(remaining, pause) : remaining);
+                    if (!ticket.granted) {
+                        dispatch();
+                    }
+                }
+            } catch (InterruptedException e) {
+                if (ticket.granted) {
+                    running--;
+                    dispatch();
+                } else if (!ticket.expired) {
+                    dequeue(caller, ticket);
+                }
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Attente du modèle interrompue", e);
+            }
+            recordWait(System.nanoTime() - ticket.enqueuedAt);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            running--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Attribue les places libres : appelants interactifs à tour de rôle, puis appels de fond
+     */
+    private void dispatch() {
+        while (running < maxConcurrent && System.nanoTime() >= pausedUntil) {
+            Ticket next = poll(interactive);
+            if (next != null) {
+                queuedInteractive--;
+            } else {
+                next = poll(background);
+                if (next == null) {
+                    return;
+                }
+                queuedBackground--;
+            }
+            if (next.deadline - System.nanoTime() <= 0) {
+                next.expired = true; // son thread constatera l'échéance dépassée
+            } else {
+                next.granted = true;
+                running++;
+            }
+            next.ready.signal();
+        }
+    }
+
+    private static Ticket poll(Map<String, ArrayDeque<Ticket>> queues) {
+        if (queues.isEmpty()) {
+            return null;
+        }
+        String owner = queues.keySet().iterator().next();
+        ArrayDeque<Ticket> queue = queues.remove(owner);
+        Ticket ticket = queue.pollFirst();
+        if (!queue.isEmpty()) {
+            queues.put(owner, queue); // repasse en fin de tour
+        }
+        return ticket;
+    }
+
+    private void dequeue(Caller caller, Ticket ticket) {
+        Map<String, ArrayDeque<Ticket>> queues = queues(caller.priority());
+        ArrayDeque<Ticket> queue = queues.get(caller.owner());
+        if (queue != null && queue.remove(ticket)) {
+            if (queue.isEmpty()) {
+                queues.remove(caller.owner());
+            }
+            if (caller.priority() == Priority.INTERACTIVE) {
+                queuedInteractive--;
+            } else {
+                queuedBackground--;
+            }
+        }
+    }
+
+    private Map<String, ArrayDeque<Ticket>> queues(Priority priority) {
+        return priority == Priority.INTERACTIVE ? interactive : background;
+    }
+
+    /**
+     * Attente estimée d'une nouvelle demande interactive : les demandes interactives
+     * déjà en file passent par vagues de maxConcurrent, chacune de la durée moyenne d'un appel
+     */
+    private long estimatedWait() {
+        if (calls < 5) {
+            return 0; // pas encore de durée d'appel fiable
+        }
+        long waves = queuedInteractive / maxConcurrent + (running >= maxConcurrent ? 1 : 0);
+        return Math.max(0, pausedUntil - System.nanoTime()) + (long) (waves * averageCallNanos);
+    }
+
+    /**
+     * Délai avant la relance d'un appel refusé pour limite de débit ; toute autre erreur est propagée
+     */
+    private long retryDelay(RuntimeException error, int attempt, long deadline) {
+        lock.lock();
+        try {
+            if (!isRateLimited(error) || attempt >= maxRetries) {
+                failures++;
+                throw error;
+            }
+            long ceiling = Math.min(backoffMaxMillis, backoffInitialMillis << Math.min(attempt, 20));
+            long delay = TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+            long now = System.nanoTime();
+            if (now + delay > deadline) {
+                failures++;
+                throw new RuntimeException("Limite de débit du fournisseur atteinte, réessayez dans quelques instants", error);
+            }
+            rateLimited++;
+            if (now + delay - pausedUntil > 0) {
+                pausedUntil = now + delay;
+            }
+            System.out.println("🚦 Limite de débit du modèle atteinte : relance " + (attempt + 1) + "/" + maxRetries
+                    + " dans " + TimeUnit.NANOSECONDS.toMillis(delay) + " ms");
+            return delay;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static boolean isRateLimited(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && RATE_LIMITED.matcher(cause.getMessage()).find()) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private void recordWait(long waitNanos) {
+        granted++;
+        totalWaitNanos += waitNanos;
+        maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+    }
+
+    private void recordCall(long durationNanos) {
+        lock.lock();
+        try {
+            // Moyenne glissante : suit l'évolution de la latence du fournisseur
+            averageCallNanos = calls == 0 ? durationNanos : 0.9 * averageCallNanos + 0.1 * durationNanos;
+            calls++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public SchedulerStats getStats() {
+        lock.lock();
+        try {
+            return new SchedulerStats(maxConcurrent, running, queuedInteractive, queuedBackground,
+                    interactive.size() + background.size(), granted, rejected, timedOut, rateLimited, failures,
+                    granted == 0 ? 0.0 : totalWaitNanos / 1e6 / granted, TimeUnit.NANOSECONDS.toMillis(maxWaitNanos),
+                    averageCallNanos / 1e6, Math.max(0, TimeUnit.NANOSECONDS.toMillis(pausedUntil - System.nanoTime())));
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -7,19 +7,36 @@ import com.education.plateforme.model.Quiz;
 import com.education.plateforme.model.QuizQuestion;
 import com.education.plateforme.model.User;
 import com.education.plateforme.repository.QuizRepository;
+import com.education.plateforme.util.JsonArrayStreamParser;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
+/**
+ * Génération de quiz en trois phases, pour ne tenir une connexion JDBC que
+ * le temps des accès à la base :
+ * <ol>
+ *   <li>contexte du cours, lu dans la transaction courte de RAGService ;</li>
+ *   <li>appel au modèle de chat et lecture de sa réponse, hors transaction
+ *       (plusieurs secondes pendant lesquelles aucune connexion n'est tenue),
+ *       quand LlmCallScheduler lui donne son tour ;</li>
+ *   <li>enregistrement du quiz dans une transaction d'écriture courte.</li>
+ * </ol>
+ * Pas de @Transactional sur la classe : il engloberait l'appel au modèle.
+ */
 @Service
-@Transactional
 public class QuizGenerationService {
 
     @Autowired
@@ -31,34 +48,82 @@ public class QuizGenerationService {
     @Autowired
     private QuizRepository quizRepository;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LlmCallScheduler llmCallScheduler;
+
+    private TransactionTemplate writeTransaction;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    @PostConstruct
+    void initTransactionTemplate() {
+        writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
     /**
      * Génère un quiz basé sur le contenu du cours avec RAG et Mistral AI
      */
     public QuizDTO generateQuiz(Course course, User student, String difficulty, int numberOfQuestions, int timeLimitMinutes) {
+        List<QuizQuestionDTO> questions = generateQuestions(course, difficulty, numberOfQuestions,
+                LlmCallScheduler.Caller.student(student));
+        return saveQuiz(course, student, difficulty, timeLimitMinutes, questions);
+    }
+
+    /**
+     * Génère les questions d'un quiz sans l'enregistrer (aucune transaction tenue pendant l'appel au modèle)
+     */
+    public List<QuizQuestionDTO> generateQuestions(Course course, String difficulty, int numberOfQuestions,
+                                                   LlmCallScheduler.Caller caller) {
         try {
-            // 1. Récupérer le contexte pertinent via RAG
-            String courseContext = ragService.getCourseContext(course, 10);
+            // 1. Récupérer le contexte pertinent via RAG (budget de tokens, tout le cours couvert) ;
+            //    RAGService ouvre et referme sa propre transaction
+            String courseContext = ragService.getCourseContext(course);
 
             // 2. Construire le prompt pour Mistral AI
             String fullPrompt = buildFullPrompt(courseContext, course.getTitle(), difficulty, numberOfQuestions);
 
-            // 3. Appeler Mistral AI
+            // 3. Appeler Mistral AI à son tour, sans transaction ni connexion ouverte
             Prompt prompt = new Prompt(fullPrompt);
-            String response = chatModel.call(prompt)
+            String response = llmCallScheduler.call(caller, () -> chatModel.call(prompt)
                     .getResult()
                     .getOutput()
-                    .getText();
+                    .getText());
 
             // 4. Parser la réponse JSON
-            List<QuizQuestionDTO> questions = parseQuizResponse(response);
+            return parseQuizResponse(response);
 
-            // 5. Créer et sauvegarder le quiz
-            Quiz quiz = createQuizEntity(course, student, difficulty, timeLimitMinutes, questions);
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException("Erreur lors de la génération du quiz: " + e.getMessage(), e);
+        }
+    }
 
-            // 6. Retourner le DTO
-            return new QuizDTO(quiz.getId(), difficulty, timeLimitMinutes, questions);
+    /**
+     * Variante en flux de generateQuestions : la réponse du modèle est lue morceau par
+     * morceau et chaque question est transmise au listener dès que son objet JSON est
+     * complet, sans attendre la fin du tableau. La place dans l'ordonnanceur est tenue
+     * jusqu'à la fin du flux. Une réponse tronquée ou au nombre de questions différent
+     * de celui annoncé est rejetée : l'appelant ne doit alors rien enregistrer
+     */
+    public List<QuizQuestionDTO> streamQuestions(Course course, String difficulty, int numberOfQuestions,
+                                                 LlmCallScheduler.Caller caller, QuizStreamListener listener) {
+        try {
+            String courseContext = ragService.getCourseContext(course);
+            Prompt prompt = new Prompt(buildFullPrompt(courseContext, course.getTitle(), difficulty, numberOfQuestions));
+
+            // Chaque tentative repart d'un parseur vide ; l'ordonnanceur ne relance que
+            // si aucune question n'a encore été transmise (voir readStream)
+            List<QuizQuestionDTO> questions = llmCallScheduler.call(caller, () -> readStream(prompt, listener));
+
+            // Rien n'est enregistré si le quiz ne compte pas le nombre de questions annoncé
+            if (questions.size() != numberOfQuestions) {
+                throw new RuntimeException("Le modèle a généré " + questions.size() + " questions au lieu de "
+                        + numberOfQuestions);
+            }
+            return questions;
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -66,6 +131,61 @@ public class QuizGenerationService {
         }
     }
 
+    /**
+     * Une tentative de lecture du flux du modèle. Si elle échoue après avoir transmis des
+     * questions, l'erreur est rendue non relançable : une relance les transmettrait deux fois
+     */
+    private List<QuizQuestionDTO> readStream(Prompt prompt, QuizStreamListener listener) {
+        List<QuizQuestionDTO> questions = new ArrayList<>();
+        JsonArrayStreamParser parser = new JsonArrayStreamParser(json -> {
+            QuizQuestionDTO question = readQuestion(json);
+            questions.add(question);
+            listener.onQuestion(questions.size() - 1, question);
+        });
+        try {
+            Flux<ChatResponse> responses;
+            try {
+                responses = chatModel.stream(prompt);
+            } catch (UnsupportedOperationException e) {
+                responses = null; // modèle sans streaming
+            }
+            if (responses == null) {
+                parser.feed(chatModel.call(prompt).getResult().getOutput().getText());
+            } else {
+                // Fermer le flux annule la requête au modèle si le listener abandonne
+                try (Stream<ChatResponse> chunks = responses.toStream()) {
+                    chunks.forEach(response -> {
+                        if (response.getResult() != null && response.getResult().getOutput() != null) {
+                            parser.feed(response.getResult().getOutput().getText());
+                        }
+                    });
+                }
+            }
+        } catch (RuntimeException e) {
+            if (questions.isEmpty()) {
+                throw e;
+            }
+            // Sans la cause : l'ordonnanceur la reconnaîtrait comme limite de débit et relancerait
+            System.err.println("Flux du modèle interrompu après " + questions.size() + " questions : " + e.getMessage());
+            throw new IllegalStateException("Flux du modèle interrompu après " + questions.size() + " questions");
+        }
+        // Réponse coupée (limite de tokens, flux terminé trop tôt) : le tableau n'a jamais été fermé
+        if (!parser.isFinished()) {
+            System.err.println("Réponse du modèle incomplète après " + questions.size() + " questions");
+            throw new IllegalStateException("Réponse du modèle incomplète (" + questions.size() + " questions reçues)");
+        }
+        return questions;
+    }
+
+    /**
+     * Enregistre pour l'étudiant un quiz aux questions déjà générées, dans une transaction courte
+     */
+    public QuizDTO saveQuiz(Course course, User student, String difficulty, int timeLimitMinutes, List<QuizQuestionDTO> questions) {
+        Quiz quiz = writeTransaction.execute(status ->
+                createQuizEntity(course, student, difficulty, timeLimitMinutes, questions));
+        return new QuizDTO(quiz.getId(), difficulty, timeLimitMinutes, questions);
+    }
+
     private String buildFullPrompt(String courseContext, String courseTitle, String difficulty, int numberOfQuestions) {
         String difficultyInstruction = switch (difficulty) {
             case "EASY" -> "Questions simples et directes sur les concepts de base.";
@@ -146,6 +266,15 @@ public class QuizGenerationService {
         }
     }
 
+    private QuizQuestionDTO readQuestion(String json) {
+        try {
+            return objectMapper.readValue(json, QuizQuestionDTO.class);
+        } catch (Exception e) {
+            System.err.println("Erreur de parsing. Question reçue: " + json);
+            throw new RuntimeException("Erreur lors du parsing d'une question de Mistral AI: " + e.getMessage(), e);
+        }
+    }
+
     private Quiz createQuizEntity(Course course, User student, String difficulty, int timeLimitMinutes, List<QuizQuestionDTO> questionDTOs) {
         Quiz quiz = new Quiz();
         quiz.setCourse(course);
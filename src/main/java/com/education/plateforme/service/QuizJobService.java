@@ -0,0 +1,252 @@
+package com.education.plateforme.service;
+
+import com.education.plateforme.dto.QuizDTO;
+import com.education.plateforme.model.Course;
+import com.education.plateforme.model.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tâches de génération de quiz : la demande renvoie aussitôt un identifiant de
+ * tâche et la génération (RAG + modèle) tourne en arrière-plan, si bien que les
+ * threads de Tomcat restent libres pour les pages pendant un afflux de demandes.
+ * Le résultat se consulte par identifiant, ou arrive par un flux SSE.
+ *
+ * Une demande identique (même étudiant, même cours) à une tâche encore en
+ * attente ou en cours s'y rattache au lieu de générer un second quiz.
+ *
+ * Les threads du pool passent l'essentiel de leur temps à attendre le modèle
+ * (dont la concurrence est plafonnée par LlmCallScheduler) : le pool peut donc
+ * être large sans charger le fournisseur.
+ *
+ * Pas de @Transactional ici : la génération ouvre ses propres transactions courtes.
+ */
+@Service
+public class QuizJobService {
+
+    public enum State { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    public record JobStatus(String jobId, Long courseId, State state, Long quizId,
+                            Instant submittedAt, Instant finishedAt, String error) {
+    }
+
+    private record Key(Long studentId, Long courseId) {
+    }
+
+    @Autowired
+    private AIAgentService aiAgentService;
+
+    // Générations exécutées en même temps (threads surtout en attente du modèle)
+    @Value("${quiz.jobs.threads:32}")
+    private int threads;
+
+    // Tâches en attente au-delà desquelles une nouvelle demande est refusée
+    @Value("${quiz.jobs.queue-capacity:500}")
+    private int queueCapacity;
+
+    // Tâches terminées conservées pour consultation
+    @Value("${quiz.jobs.history-size:1000}")
+    private int historySize;
+
+    // Durée maximale d'un abonnement SSE au résultat d'une tâche
+    @Value("${quiz.jobs.events-timeout-ms:180000}")
+    private long eventsTimeoutMillis;
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, QuizJob> jobs = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    // Tâche en attente ou en cours par étudiant et par cours : une demande identique s'y rattache
+    private final ConcurrentMap<Key, QuizJob> activeByStudentAndCourse = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void initExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "quiz-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Planifie la génération d'un quiz et renvoie immédiatement la tâche
+     * (la tâche déjà en cours si l'étudiant a fait la même demande) ;
+     * RejectedExecutionException si la file d'attente est pleine
+     */
+    public JobStatus submit(Course course, User student) {
+        Key key = new Key(student.getId(), course.getId());
+        QuizJob created = new QuizJob(student.getId(), course.getId());
+        QuizJob job = activeByStudentAndCourse.computeIfAbsent(key, k -> created);
+        if (job != created) {
+            System.out.println("🔁 Quiz du cours " + course.getId() + " déjà en génération pour l'étudiant "
+                    + student.getId() + " (tâche " + job.id + ")");
+            return job.toStatus();
+        }
+
+        remember(job);
+        try {
+            executor.execute(() -> run(job, course, student));
+        } catch (RejectedExecutionException e) {
+            activeByStudentAndCourse.remove(key, job);
+            job.fail("File de génération pleine, réessayez plus tard");
+            throw new RejectedExecutionException("File de génération pleine (" + queueCapacity + " quiz en attente)");
+        }
+        return job.toStatus();
+    }
+
+    /**
+     * État d'une tâche, visible uniquement par l'étudiant qui l'a demandée
+     */
+    public Optional<JobStatus> getStatus(String jobId, User student) {
+        return find(jobId, student).map(QuizJob::toStatus);
+    }
+
+    /**
+     * Flux SSE de la tâche : un événement "state" tout de suite, puis "done" (avec
+     * l'identifiant du quiz) ou "failed" à la fin de la génération
+     */
+    public Optional<SseEmitter> subscribe(String jobId, User student) {
+        return find(jobId, student).map(job -> {
+            SseEmitter emitter = new SseEmitter(eventsTimeoutMillis);
+            try {
+                emitter.send(SseEmitter.event().name("state").data(job.toStatus()));
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+                return emitter;
+            }
+            // Flux fermé (client parti, délai écoulé) : l'abonnement au résultat est retiré
+            // et rien n'est plus envoyé à ce flux
+            AtomicBoolean open = new AtomicBoolean(true);
+            CompletableFuture<Long> notification = job.result.whenComplete((quizId, error) -> {
+                if (!open.get()) {
+                    return;
+                }
+                try {
+                    emitter.send(SseEmitter.event().name(error == null ? "done" : "failed").data(job.toStatus()));
+                    emitter.complete();
+                } catch (IOException e) {
+                    emitter.completeWithError(e); // client parti pendant l'envoi
+                }
+            });
+            Runnable unsubscribe = () -> {
+                open.set(false);
+                notification.cancel(false);
+            };
+            emitter.onCompletion(unsubscribe);
+            emitter.onTimeout(unsubscribe);
+            emitter.onError(error -> unsubscribe.run());
+            return emitter;
+        });
+    }
+
+    private Optional<QuizJob> find(String jobId, User student) {
+        QuizJob job = jobs.get(jobId);
+        if (job == null || !job.studentId.equals(student.getId())) {
+            return Optional.empty();
+        }
+        return Optional.of(job);
+    }
+
+    private void run(QuizJob job, Course course, User student) {
+        try {
+            job.start();
+            QuizDTO quiz = aiAgentService.generateAdaptiveQuiz(course, student);
+            // Retiré des tâches actives avant de publier le résultat : une nouvelle
+            // demande après le "done" crée bien un nouveau quiz
+            activeByStudentAndCourse.remove(job.key(), job);
+            job.complete(quiz.getQuizId());
+            System.out.println("🏁 Tâche de quiz " + job.id + " terminée en "
+                    + Duration.between(job.startedAt, job.finishedAt).toMillis() + " ms (quiz " + quiz.getQuizId() + ")");
+        } catch (Exception e) {
+            activeByStudentAndCourse.remove(job.key(), job);
+            job.fail(e.getMessage());
+            System.err.println("Tâche de quiz " + job.id + " en échec : " + e.getMessage());
+        }
+    }
+
+    private void remember(QuizJob job) {
+        synchronized (jobs) {
+            jobs.put(job.id, job);
+            Iterator<QuizJob> eldest = jobs.values().iterator();
+            while (jobs.size() > historySize && eldest.hasNext()) {
+                QuizJob candidate = eldest.next();
+                if (candidate.isFinished()) {
+                    eldest.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * État mutable d'une tâche, lu par les requêtes de suivi
+     */
+    private static class QuizJob {
+
+        private final String id = UUID.randomUUID().toString();
+        private final Long studentId;
+        private final Long courseId;
+        private final Instant submittedAt = Instant.now();
+        // Identifiant du quiz généré ; complété en erreur si la génération échoue
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+        private volatile State state = State.QUEUED;
+        private volatile Long quizId;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        QuizJob(Long studentId, Long courseId) {
+            this.studentId = studentId;
+            this.courseId = courseId;
+        }
+
+        Key key() {
+            return new Key(studentId, courseId);
+        }
+
+        void start() {
+            startedAt = Instant.now();
+            state = State.RUNNING;
+        }
+
+        void complete(Long quizId) {
+            this.quizId = quizId;
+            finishedAt = Instant.now();
+            state = State.COMPLETED;
+            result.complete(quizId);
+        }
+
+        void fail(String message) {
+            finishedAt = Instant.now();
+            error = message;
+            state = State.FAILED;
+            result.completeExceptionally(new RuntimeException(message));
+        }
+
+        boolean isFinished() {
+            return state == State.COMPLETED || state == State.FAILED;
+        }
+
+        JobStatus toStatus() {
+            return new JobStatus(id, courseId, state, quizId, submittedAt, finishedAt, error);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.education.plateforme.service;
+
+import com.education.plateforme.dto.QuizQuestionDTO;
+import com.education.plateforme.model.Course;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Réserve de questions pré-générées par cours publié et par niveau (EASY, MEDIUM,
+ * HARD) : un étudiant reçoit aussitôt un jeu prêt au lieu d'attendre le modèle.
+ *
+ * Chaque jeu n'est servi qu'une fois (retrait atomique de la file). Après chaque
+ * retrait, la réserve est complétée en arrière-plan, par un pool dont la taille
+ * plafonne les appels simultanés au modèle. Une réindexation du cours vide ses
+ * réserves : un jeu en cours de génération à partir de l'ancien contenu est jeté.
+ *
+ * Pas de @Transactional ici : la génération ouvre ses propres transactions courtes.
+ */
+@Service
+public class QuizPoolService {
+
+    public static final List<String> DIFFICULTIES = List.of("EASY", "MEDIUM", "HARD");
+
+    public record PoolEntry(Long courseId, String difficulty, int ready, int generating) {
+    }
+
+    public record PoolStats(boolean enabled, int sizePerLevel, long hits, long misses, double hitRate,
+                            long generated, long discarded, long failures, List<PoolEntry> entries) {
+    }
+
+    private record Key(Long courseId, String difficulty) {
+    }
+
+    private record PooledQuestions(List<QuizQuestionDTO> questions, Instant generatedAt) {
+    }
+
+    @Autowired
+    private QuizGenerationService quizGenerationService;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Value("${quiz.pool.enabled:true}")
+    private boolean enabled;
+
+    // Jeux de questions prêts à garder par cours et par niveau
+    @Value("${quiz.pool.size-per-level:2}")
+    private int sizePerLevel;
+
+    // Générations simultanées pour la réserve (appels au modèle en parallèle)
+    @Value("${quiz.pool.max-concurrent-generations:2}")
+    private int maxConcurrentGenerations;
+
+    private ExecutorService executor;
+
+    private final ConcurrentMap<Key, ConcurrentLinkedDeque<PooledQuestions>> pools = new ConcurrentHashMap<>();
+
+    // Générations en attente ou en cours par réserve, pour ne pas la remplir au-delà de sa taille
+    private final ConcurrentMap<Key, AtomicInteger> generating = new ConcurrentHashMap<>();
+
+    // Génération du contenu de chaque cours, incrémentée à chaque réindexation
+    private final ConcurrentMap<Long, AtomicLong> contentGenerations = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    @PostConstruct
+    void initExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, maxConcurrentGenerations), runnable -> {
+            Thread thread = new Thread(runnable, "quiz-pool-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Remplit les réserves de tous les cours publiés, en arrière-plan
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void fillPublishedCourses() {
+        if (!enabled) {
+            return;
+        }
+        List<Course> courses = courseService.getPublishedCourses();
+        for (Course course : courses) {
+            DIFFICULTIES.forEach(difficulty -> refill(new Key(course.getId(), difficulty)));
+        }
+        System.out.println("🎲 Remplissage des réserves de quiz : " + courses.size() + " cours x "
+                + DIFFICULTIES.size() + " niveaux x " + sizePerLevel + " jeux");
+    }
+
+    /**
+     * Retire un jeu de questions prêt, s'il y en a un, et relance le remplissage
+     */
+    public Optional<List<QuizQuestionDTO>> claim(Course course, String difficulty) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Key key = new Key(course.getId(), difficulty);
+        PooledQuestions pooled = pool(key).pollFirst();
+        refill(key);
+        if (pooled == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(pooled.questions());
+    }
+
+    /**
+     * Le contenu du cours a changé : les jeux prêts ou en cours de génération sont jetés
+     */
+    @EventListener
+    public void onCourseReindexed(CourseReindexedEvent event) {
+        contentGeneration(event.courseId()).incrementAndGet();
+        int dropped = 0;
+        for (String difficulty : DIFFICULTIES) {
+            ConcurrentLinkedDeque<PooledQuestions> pool = pools.get(new Key(event.courseId(), difficulty));
+            while (pool != null && pool.pollFirst() != null) {
+                dropped++;
+            }
+        }
+        discarded.addAndGet(dropped);
+        if (dropped > 0) {
+            System.out.println("🗑️ " + dropped + " quiz pré-générés du cours " + event.courseId() + " jetés (index v" + event.version() + ")");
+        }
+        if (enabled) {
+            DIFFICULTIES.forEach(difficulty -> refill(new Key(event.courseId(), difficulty)));
+        }
+    }
+
+    /**
+     * Le cours est supprimé : ses jeux prêts sont jetés, ceux en cours de génération
+     * aussi (la génération suivante constate l'absence du cours et s'arrête)
+     */
+    @EventListener
+    public void onCourseDeleted(CourseDeletedEvent event) {
+        contentGeneration(event.courseId()).incrementAndGet();
+        int dropped = 0;
+        for (String difficulty : DIFFICULTIES) {
+            ConcurrentLinkedDeque<PooledQuestions> pool = pools.remove(new Key(event.courseId(), difficulty));
+            if (pool != null) {
+                dropped += pool.size();
+            }
+        }
+        discarded.addAndGet(dropped);
+        System.out.println("🗑️ Réserves de quiz du cours supprimé " + event.courseId() + " vidées (" + dropped + " jeux)");
+    }
+
+    /**
+     * Planifie les générations manquantes d'une réserve
+     */
+    private void refill(Key key) {
+        AtomicInteger inFlight = generating.computeIfAbsent(key, k -> new AtomicInteger());
+        ConcurrentLinkedDeque<PooledQuestions> pool = pool(key);
+        while (true) {
+            int current = inFlight.get();
+            if (pool.size() + current >= sizePerLevel) {
+                return;
+            }
+            if (!inFlight.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            try {
+                executor.execute(() -> generate(key, inFlight));
+            } catch (RejectedExecutionException e) {
+                inFlight.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    private void generate(Key key, AtomicInteger inFlight) {
+        long contentGeneration = contentGeneration(key.courseId()).get();
+        boolean stale = false;
+        try {
+            Course course = courseService.getCourseById(key.courseId()).orElse(null);
+            if (course == null || !course.isPublished()) {
+                return; // cours supprimé ou dépublié : la réserve n'est plus alimentée
+            }
+            // Appel de fond : ne passe devant aucun étudiant en attente du modèle
+            List<QuizQuestionDTO> questions = quizGenerationService.generateQuestions(course, key.difficulty(),
+                    AIAgentService.determineQuestionCount(key.difficulty()), LlmCallScheduler.Caller.background("quiz-pool"));
+            if (contentGeneration(key.courseId()).get() != contentGeneration) {
+                discarded.incrementAndGet(); // généré à partir de l'ancien contenu
+                stale = true;
+                return;
+            }
+            pool(key).addLast(new PooledQuestions(List.copyOf(questions), Instant.now()));
+            generated.incrementAndGet();
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            System.err.println("Pré-génération d'un quiz " + key.difficulty() + " du cours " + key.courseId()
+                    + " en échec : " + e.getMessage());
+        } finally {
+            inFlight.decrementAndGet();
+            if (stale) {
+                refill(key); // remplacé par un jeu tiré du nouveau contenu
+            }
+        }
+    }
+
+    private ConcurrentLinkedDeque<PooledQuestions> pool(Key key) {
+        return pools.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>());
+    }
+
+    private AtomicLong contentGeneration(Long courseId) {
+        return contentGenerations.computeIfAbsent(courseId, id -> new AtomicLong());
+    }
+
+    public PoolStats getStats() {
+        List<PoolEntry> entries = new ArrayList<>();
+        pools.forEach((key, pool) -> {
+            AtomicInteger inFlight = generating.get(key);
+            entries.add(new PoolEntry(key.courseId(), key.difficulty(), pool.size(), inFlight == null ? 0 : inFlight.get()));
+        });
+        entries.sort(Comparator.comparing(PoolEntry::courseId)
+                .thenComparing(entry -> DIFFICULTIES.indexOf(entry.difficulty())));
+        long claims = hits.get() + misses.get();
+        return new PoolStats(enabled, sizePerLevel, hits.get(), misses.get(), claims == 0 ? 0.0 : (double) hits.get() / claims,
+                generated.get(), discarded.get(), failures.get(), entries);
+    }
+}
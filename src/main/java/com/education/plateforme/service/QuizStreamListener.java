@@ -0,0 +1,14 @@
+package com.education.plateforme.service;
+
+import com.education.plateforme.dto.QuizQuestionDTO;
+
+/**
+ * Suivi d'une génération de quiz en flux : paramètres choisis, puis chaque
+ * question dès qu'elle est complète, dans l'ordre du quiz
+ */
+public interface QuizStreamListener {
+
+    void onStart(String difficulty, int numberOfQuestions, int timeLimitMinutes);
+
+    void onQuestion(int index, QuizQuestionDTO question);
+}
@@ -0,0 +1,154 @@
+package com.education.plateforme.service;
+
+import com.education.plateforme.dto.QuizDTO;
+import com.education.plateforme.dto.QuizQuestionDTO;
+import com.education.plateforme.model.Course;
+import com.education.plateforme.model.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Génération de quiz diffusée en Server-Sent Events : la page du quiz affiche la
+ * première question pendant que le modèle rédige les suivantes.
+ *
+ * Événements envoyés, dans l'ordre :
+ * <ul>
+ *   <li>start : difficulté, nombre de questions annoncé, limite de temps ;</li>
+ *   <li>question : index, énoncé et options (ni la bonne réponse ni l'explication) ;</li>
+ *   <li>done : identifiant du quiz enregistré, à utiliser pour la soumission ;</li>
+ *   <li>failed : message d'erreur, la génération est abandonnée.</li>
+ * </ul>
+ * Si le client se déconnecte, la requête au modèle est annulée et rien n'est enregistré.
+ *
+ * Pas de @Transactional ici : la génération ouvre ses propres transactions courtes.
+ */
+@Service
+public class QuizStreamService {
+
+    @Autowired
+    private AIAgentService aiAgentService;
+
+    // Générations diffusées simultanément (chacune occupe un thread jusqu'à la fin du modèle)
+    @Value("${quiz.stream.threads:8}")
+    private int threads;
+
+    // Durée maximale d'une connexion SSE
+    @Value("${quiz.stream.timeout-ms:180000}")
+    private long timeoutMillis;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void initExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "quiz-stream-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Ouvre le flux SSE et lance la génération en arrière-plan
+     */
+    public SseEmitter stream(Course course, User student) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        AtomicBoolean open = new AtomicBoolean(true);
+        emitter.onCompletion(() -> open.set(false));
+        emitter.onTimeout(() -> open.set(false));
+        emitter.onError(error -> open.set(false));
+        try {
+            executor.execute(() -> generate(course, student, emitter, open));
+        } catch (RejectedExecutionException e) {
+            fail(emitter, open, "Service de génération indisponible, réessayez dans un instant");
+        }
+        return emitter;
+    }
+
+    /**
+     * Flux réduit à une erreur, pour une requête refusée avant toute génération
+     */
+    public SseEmitter failed(String message) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        fail(emitter, new AtomicBoolean(true), message);
+        return emitter;
+    }
+
+    private void generate(Course course, User student, SseEmitter emitter, AtomicBoolean open) {
+        long start = System.currentTimeMillis();
+        try {
+            QuizDTO quiz = aiAgentService.streamAdaptiveQuiz(course, student, new QuizStreamListener() {
+                @Override
+                public void onStart(String difficulty, int numberOfQuestions, int timeLimitMinutes) {
+                    send(emitter, open, "start", Map.of(
+                            "difficulty", difficulty,
+                            "numberOfQuestions", numberOfQuestions,
+                            "timeLimitMinutes", timeLimitMinutes));
+                }
+
+                @Override
+                public void onQuestion(int index, QuizQuestionDTO question) {
+                    if (index == 0) {
+                        System.out.println("⚡ Première question du cours " + course.getId() + " envoyée en "
+                                + (System.currentTimeMillis() - start) + " ms");
+                    }
+                    send(emitter, open, "question", Map.of(
+                            "index", index,
+                            "question", question.getQuestion(),
+                            "options", question.getOptions()));
+                }
+            });
+            send(emitter, open, "done", Map.of(
+                    "quizId", quiz.getQuizId(),
+                    "totalQuestions", quiz.getQuestions().size()));
+            emitter.complete();
+            System.out.println("✅ Quiz " + quiz.getQuizId() + " diffusé en " + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+            if (!open.get()) {
+                System.out.println("🔌 Client déconnecté : génération du quiz du cours " + course.getId() + " abandonnée");
+                return;
+            }
+            System.err.println("❌ ERREUR génération quiz en flux: " + e.getMessage());
+            fail(emitter, open, e.getMessage());
+        }
+    }
+
+    private void send(SseEmitter emitter, AtomicBoolean open, String event, Object data) {
+        if (!open.get()) {
+            throw new IllegalStateException("Flux SSE fermé");
+        }
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data));
+        } catch (IOException e) {
+            open.set(false);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void fail(SseEmitter emitter, AtomicBoolean open, String message) {
+        try {
+            send(emitter, open, "failed", Map.of("error", message == null ? "Erreur inconnue" : message));
+            emitter.complete();
+        } catch (RuntimeException e) {
+            // client déjà parti
+        }
+    }
+}
@@ -2,138 +2,811 @@ package com.education.plateforme.service;
 
 import com.education.plateforme.model.Course;
 import com.education.plateforme.model.DocumentChunk;
+import com.education.plateforme.rag.ContextAssembler;
+import com.education.plateforme.rag.CourseIndexSnapshot;
+import com.education.plateforme.rag.EmbeddingPipeline;
+import com.education.plateforme.rag.IndexingProgress;
+import com.education.plateforme.rag.LexicalIndex;
+import com.education.plateforme.rag.NearDuplicateDetector;
+import com.education.plateforme.rag.RankFusion;
+import com.education.plateforme.rag.SearchResultCache;
+import com.education.plateforme.rag.TextTokenizer;
+import com.education.plateforme.rag.SentenceChunker;
+import com.education.plateforme.rag.MappedVectorStore;
+import com.education.plateforme.rag.Quantization;
+import com.education.plateforme.rag.QuantizationReport;
+import com.education.plateforme.rag.SnapshotCache;
+import com.education.plateforme.repository.ChunkMatchView;
+import com.education.plateforme.repository.ChunkVectorView;
+import com.education.plateforme.repository.CourseDedupView;
+import com.education.plateforme.repository.DocumentChunkBatchRepository;
+import com.education.plateforme.repository.ChunkView;
 import com.education.plateforme.repository.DocumentChunkRepository;
-import org.springframework.ai.document.Document;
+import com.education.plateforme.util.EmbeddingCodec;
+import com.education.plateforme.util.HashUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.ai.embedding.EmbeddingModel;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class RAGService {
 
+    // Chunks réutilisés dont le vecteur est relu par requête lors de l'écriture d'un index
+    private static final int KEPT_VECTORS_PAGE = 500;
+
     @Autowired
     private DocumentChunkRepository documentChunkRepository;
 
+    @Autowired
+    private DocumentChunkBatchRepository documentChunkBatchRepository;
+
     @Autowired
     private EmbeddingModel embeddingModel;
 
-    // Cache des vector stores par cours
-    private final Map<Long, VectorStore> vectorStoreCache = new HashMap<>();
+    @Autowired
+    private GlobalVectorIndexService globalVectorIndexService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Transactions courtes de l'indexation, qui s'exécute hors transaction
+    private TransactionTemplate writeTransaction;
+
+    // Identifiant du modèle d'embedding : un vecteur stocké avec un autre tag est recalculé
+    @Value("${rag.embedding.model-version:transformers/all-MiniLM-L6-v2}")
+    private String embeddingModelVersion;
+
+    @Value("${rag.embedding.storage-format:FLOAT32}")
+    private EmbeddingCodec.Format embeddingStorageFormat;
+
+    // Répertoire des index projetés en mémoire (un fichier par cours et par version)
+    @Value("${rag.index.directory:data/rag-index}")
+    private String indexDirectory;
+
+    // Représentation compacte parcourue en premier passage (NONE, INT8, BINARY)
+    @Value("${rag.index.quantization:NONE}")
+    private Quantization indexQuantization;
+
+    // Candidats reclassés en float32 par résultat demandé, avec quantification
+    @Value("${rag.index.rescore-factor:4}")
+    private int rescoreFactor;
+
+    // Budget du cache d'index (taille des fichiers projetés : vecteurs + texte)
+    @Value("${rag.index.cache-budget-mb:512}")
+    private long cacheBudgetMb;
+
+    // Nombre de chunks envoyés au modèle par appel
+    @Value("${rag.embedding.batch-size:32}")
+    private int embeddingBatchSize;
+
+    // Workers du pool d'embedding (0 = un par cœur)
+    @Value("${rag.embedding.workers:0}")
+    private int embeddingWorkers;
+
+    // Lots calculés mais pas encore persistés, au-delà l'indexation attend (0 = deux par worker)
+    @Value("${rag.embedding.max-in-flight:0}")
+    private int embeddingMaxInFlight;
+
+    private EmbeddingPipeline embeddingPipeline;
+
+    // Taille maximale d'un chunk en tokens estimés (le modèle tronque au-delà de 256)
+    @Value("${rag.chunking.max-tokens:128}")
+    private int chunkMaxTokens;
+
+    // Phrases reprises au début du chunk suivant
+    @Value("${rag.chunking.overlap-sentences:1}")
+    private int chunkOverlapSentences;
+
+    private SentenceChunker sentenceChunker;
+
+    // Quasi-doublons rattachés au chunk semblable qui les précède, au lieu d'être vectorisés
+    @Value("${rag.dedup.enabled:true}")
+    private boolean dedupEnabled;
+
+    // Similarité de Jaccard estimée (triplets de mots) à partir de laquelle deux chunks sont fusionnés
+    @Value("${rag.dedup.threshold:0.9}")
+    private double dedupThreshold;
+
+    // Signature MinHash de bands x rows valeurs, comparée par bandes (LSH)
+    @Value("${rag.dedup.bands:16}")
+    private int dedupBands;
+
+    @Value("${rag.dedup.rows:4}")
+    private int dedupRows;
+
+    private NearDuplicateDetector nearDuplicateDetector;
+
+    // Fusion BM25 + vecteurs ; false = recherche vectorielle seule
+    @Value("${rag.search.hybrid:true}")
+    private boolean hybridSearch;
+
+    // Constante k de la fusion par rang réciproque (amortit l'écart entre les premiers rangs)
+    @Value("${rag.search.rrf-k:60}")
+    private int rrfK;
+
+    // Candidats demandés à chaque classement avant fusion : topK x ce facteur
+    @Value("${rag.search.candidates-factor:4}")
+    private int searchCandidatesFactor;
+
+    // Requêtes d'au plus ce nombre de mots, tous présents dans le cours : BM25 seul, sans embedding
+    @Value("${rag.search.keyword-max-terms:3}")
+    private int keywordMaxTerms;
+
+    // Budget de tokens du contexte de génération de quiz (prompt hors contexte : ~400 tokens)
+    @Value("${rag.context.max-tokens:3000}")
+    private int contextMaxTokens;
+
+    // Caractères par token du modèle de chat (tokenizer Mistral : ~3,5 en français)
+    @Value("${rag.context.chars-per-token:3.5}")
+    private double contextCharsPerToken;
+
+    // Compromis MMR : 1 = pertinence seule, 0 = diversité seule
+    @Value("${rag.context.mmr-lambda:0.3}")
+    private double contextMmrLambda;
+
+    // Chunks examinés au plus par assemblage
+    @Value("${rag.context.candidate-pool:2000}")
+    private int contextCandidatePool;
+
+    private ContextAssembler contextAssembler;
+
+    // Cache des résultats de recherche : entrées maximum et durée de vie
+    @Value("${rag.search.cache.max-entries:10000}")
+    private int searchCacheMaxEntries;
+
+    @Value("${rag.search.cache.ttl-seconds:1800}")
+    private long searchCacheTtlSeconds;
+
+    private SearchResultCache searchCache;
+
+    // Instantanés publiés par cours : un lecteur voit toujours un index complet, ancien ou nouveau
+    private SnapshotCache snapshots;
+
+    // Chargements en cours : les appelants concurrents attendent le même résultat
+    private final ConcurrentMap<Long, CompletableFuture<CourseIndexSnapshot>> pendingLoads = new ConcurrentHashMap<>();
+
+    // Une seule construction d'index à la fois par cours
+    private final ConcurrentMap<Long, ReentrantLock> buildLocks = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void initTransactionTemplate() {
+        writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void initSnapshotCache() {
+        snapshots = new SnapshotCache(cacheBudgetMb * 1024 * 1024);
+        searchCache = new SearchResultCache(searchCacheMaxEntries, searchCacheTtlSeconds);
+    }
+
+    @PostConstruct
+    void initContextAssembler() {
+        contextAssembler = new ContextAssembler(contextMaxTokens, contextCharsPerToken, contextMmrLambda, contextCandidatePool);
+    }
+
+    @PostConstruct
+    void initNearDuplicateDetector() {
+        nearDuplicateDetector = new NearDuplicateDetector(dedupBands, dedupRows, dedupThreshold);
+    }
+
+    @PostConstruct
+    void initSentenceChunker() {
+        sentenceChunker = new SentenceChunker(chunkMaxTokens, chunkOverlapSentences);
+    }
+
+    @PostConstruct
+    void initEmbeddingPipeline() {
+        int workers = embeddingWorkers > 0 ? embeddingWorkers : Runtime.getRuntime().availableProcessors();
+        int maxInFlight = embeddingMaxInFlight > 0 ? embeddingMaxInFlight : workers * 2;
+        embeddingPipeline = new EmbeddingPipeline(embeddingModel, embeddingBatchSize, workers, maxInFlight);
+        System.out.println("⚙️ Pipeline d'embedding : " + workers + " workers, lots de " + embeddingBatchSize
+                + ", " + maxInFlight + " lots en vol au maximum");
+    }
+
+    @PreDestroy
+    void shutdownEmbeddingPipeline() {
+        embeddingPipeline.close();
+    }
 
     /**
-     * Indexe le contenu d'un cours pour le RAG
+     * Indexe le contenu d'un cours pour le RAG.
+     *
+     * La réindexation est incrémentale : les chunks sont appariés par empreinte
+     * de contenu, seuls les chunks nouveaux ou modifiés sont vectorisés et seuls
+     * les chunks disparus sont supprimés.
+     *
+     * Hors transaction : le calcul des embeddings peut durer plusieurs minutes et ne
+     * tient aucune connexion. Chaque lot vectorisé est enregistré dans sa propre
+     * transaction courte, en attente (indexed=false, sans représentant) ; une dernière
+     * transaction courte substitue le nouvel état à l'ancien (chunks disparus supprimés,
+     * positions, chunks en attente indexés, quasi-doublons), puis l'index est publié.
+     * Jusque-là, les lecteurs ne voient que l'état précédent.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void indexCourse(Course course) {
-        try {
-            // Supprimer les anciens chunks
-            documentChunkRepository.deleteByCourse(course);
-            vectorStoreCache.remove(course.getId());
+        indexCourse(course, IndexingProgress.NONE);
+    }
 
+    /**
+     * Indexe le contenu d'un cours en signalant l'avancement après chaque lot persisté
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void indexCourse(Course course, IndexingProgress progress) {
+        ReentrantLock lock = buildLock(course.getId());
+        lock.lock();
+        Path file = null;
+        List<Long> inserted = new ArrayList<>();
+        boolean swapped = false;
+        try {
             // Découper le contenu en chunks
-            List<String> chunks = splitIntoChunks(course.getContent(), 500);
+            List<String> chunks = sentenceChunker.split(course.getContent());
+            System.out.println("✂️ Texte découpé en " + chunks.size() + " chunks");
+
+            // Quasi-doublons : rattachés au premier chunk semblable, ni vectorisés ni indexés
+            int[] representatives = findRepresentatives(chunks);
 
-            // Créer et sauvegarder les chunks
-            List<DocumentChunk> documentChunks = new ArrayList<>();
+            // Chunks existants par empreinte (plusieurs chunks peuvent avoir le même contenu) ;
+            // projection sans contenu ni vecteur : ceux des chunks réutilisés sont lus à l'écriture de l'index
+            Map<Long, String> legacyHashes = legacyContentHashes(course);
+            Map<String, Deque<ChunkMatchView>> existingByHash = new HashMap<>();
+            for (ChunkMatchView chunk : documentChunkRepository.findMatchViewsByCourse(course)) {
+                String hash = chunk.getContentHash() != null ? chunk.getContentHash() : legacyHashes.get(chunk.getId());
+                existingByHash.computeIfAbsent(hash, h -> new ArrayDeque<>()).add(chunk);
+            }
+
+            // Réutiliser les chunks inchangés, à leur nouvelle position
+            ChunkMatchView[] kept = new ChunkMatchView[chunks.size()];
+            String[] hashes = new String[chunks.size()];
+            List<Integer> toEmbed = new ArrayList<>();
+            List<Integer> newDuplicates = new ArrayList<>();
+            List<Long> removed = new ArrayList<>();
+            Map<Long, Integer> moves = new HashMap<>();
+            // Chunks vectorisés par une indexation interrompue, encore en attente : repris tels quels
+            List<Long> pending = new ArrayList<>();
+            int duplicates = 0;
             for (int i = 0; i < chunks.size(); i++) {
-                DocumentChunk chunk = new DocumentChunk();
-                chunk.setCourse(course);
-                chunk.setContent(chunks.get(i));
-                chunk.setChunkIndex(i);
-                chunk.setIndexed(true);
-                
-                documentChunks.add(chunk);
+                hashes[i] = HashUtils.sha256(chunks.get(i));
+                Deque<ChunkMatchView> candidates = existingByHash.get(hashes[i]);
+                ChunkMatchView match = candidates == null ? null : candidates.poll();
+                if (representatives[i] != i) {
+                    duplicates++;
+                    if (match != null && match.getDuplicateOf() != null) {
+                        if (match.getChunkIndex() != i) {
+                            moves.put(match.getId(), i);
+                        }
+                        kept[i] = match; // rattaché de nouveau à son représentant plus bas
+                    } else {
+                        if (match != null) {
+                            removed.add(match.getId()); // chunk indexé devenu doublon
+                        }
+                        newDuplicates.add(i);
+                    }
+                    continue;
+                }
+                if (match != null && match.getDuplicateOf() == null && hasCurrentEmbedding(match)) {
+                    if (match.getChunkIndex() != i) {
+                        moves.put(match.getId(), i);
+                    }
+                    if (!match.isIndexed()) {
+                        pending.add(match.getId());
+                    }
+                    kept[i] = match;
+                } else {
+                    if (match != null) {
+                        removed.add(match.getId()); // vecteur d'un autre modèle : recréé
+                    }
+                    toEmbed.add(i);
+                }
             }
+            existingByHash.values().forEach(rest -> rest.forEach(chunk -> removed.add(chunk.getId())));
 
-            documentChunkRepository.saveAll(documentChunks);
-            
-            // Initialiser le vector store pour ce cours
-            initializeVectorStore(course);
+            if (toEmbed.isEmpty() && newDuplicates.isEmpty() && removed.isEmpty() && moves.isEmpty() && pending.isEmpty()
+                    && hasIndexFile(course.getId())) {
+                progress.update(chunks.size(), chunks.size());
+                System.out.println("✅ Cours " + course.getId() + " inchangé : " + chunks.size() + " chunks, aucun embedding recalculé");
+                return;
+            }
+            progress.update(chunks.size() - toEmbed.size(), chunks.size());
+            System.out.println("♻️ Réindexation incrémentale : " + (chunks.size() - toEmbed.size() - duplicates) + " chunks réutilisés, "
+                    + toEmbed.size() + " à vectoriser, " + duplicates + " quasi-doublons, " + removed.size() + " supprimés");
+
+            // Embeddings des seuls chunks nouveaux ou modifiés, calculés par lots en parallèle ;
+            // le nouvel index est écrit dans l'ordre, les chunks réutilisés intercalés depuis leur vecteur stocké
+            List<String> texts = toEmbed.stream().map(chunks::get).collect(Collectors.toList());
+            long version = nextVersion(course.getId());
+            file = indexFile(course.getId(), version);
+            // Identifiants des représentants, pour rattacher leurs doublons
+            long[] chunkIds = new long[chunks.size()];
+            for (int i = 0; i < chunks.size(); i++) {
+                if (kept[i] != null) {
+                    chunkIds[i] = kept[i].getId();
+                }
+            }
+            int[] written = {0};
+            CourseIndexSnapshot snapshot;
+            try (MappedVectorStore.Writer writer = MappedVectorStore.writer(file, course.getId(), embeddingModelVersion,
+                    chunks.size() - duplicates, indexQuantization)) {
+                EmbeddingPipeline.Result result = embeddingPipeline.run(texts, (firstIndex, batchTexts, embeddings) -> {
+                    List<DocumentChunk> batch = new ArrayList<>(batchTexts.size());
+                    for (int i = 0; i < batchTexts.size(); i++) {
+                        int chunkIndex = toEmbed.get(firstIndex + i);
+                        DocumentChunk chunk = new DocumentChunk();
+                        chunk.setCourse(course);
+                        chunk.setContent(batchTexts.get(i));
+                        chunk.setContentHash(hashes[chunkIndex]);
+                        chunk.setChunkIndex(chunkIndex);
+                        chunk.setEmbedding(EmbeddingCodec.encode(embeddings.get(i), embeddingStorageFormat));
+                        chunk.setEmbeddingModel(embeddingModelVersion);
+                        chunk.setIndexed(false); // en attente jusqu'à la substitution finale
+                        batch.add(chunk);
+                    }
+                    // Un INSERT multi-lignes par lot, dans une transaction courte
+                    writeTransaction.execute(status -> {
+                        documentChunkBatchRepository.insertAll(batch);
+                        return null;
+                    });
+
+                    for (int i = 0; i < batch.size(); i++) {
+                        DocumentChunk chunk = batch.get(i);
+                        inserted.add(chunk.getId());
+                        appendKept(writer, kept, representatives, written[0], chunk.getChunkIndex());
+                        writer.append(chunk.getId(), chunk.getChunkIndex(), chunk.getContent(), embeddings.get(i));
+                        chunkIds[chunk.getChunkIndex()] = chunk.getId();
+                        written[0] = chunk.getChunkIndex() + 1;
+                    }
+                    progress.update(chunks.size() - toEmbed.size() + firstIndex + batch.size(), chunks.size());
+                });
+                appendKept(writer, kept, representatives, written[0], chunks.size());
+                writer.finish();
+                snapshot = new CourseIndexSnapshot(course.getId(), version, MappedVectorStore.open(embeddingModel, file, rescoreFactor));
+
+                System.out.println("📈 " + result.chunks() + " chunks vectorisés en " + result.batches() + " lots, "
+                        + result.elapsedMillis() + " ms (" + String.format("%.1f", result.chunksPerSecond()) + " chunks/s)");
+            }
+
+            // Substitution en une transaction courte : l'ancien index reste servi jusqu'à la publication
+            pending.addAll(inserted);
+            writeTransaction.execute(status -> {
+                if (!removed.isEmpty()) {
+                    documentChunkRepository.deleteAllByIdInBatch(removed);
+                }
+                documentChunkBatchRepository.updateChunkIndexes(moves);
+                documentChunkBatchRepository.markIndexed(pending);
+                linkDuplicates(course, chunks, hashes, representatives, kept, newDuplicates, chunkIds);
+                return null;
+            });
+            swapped = true;
+
+            // Publier le nouvel index : les chunks référencés sont validés en base
+            publishReindexed(snapshot, course.isPublished());
             
-            System.out.println("✅ Cours indexé avec succès : " + chunks.size() + " chunks créés");
+            System.out.println("✅ Cours indexé avec succès : " + chunks.size() + " chunks (version " + snapshot.version() + ")");
         } catch (Exception e) {
             e.printStackTrace();
+            if (!swapped) {
+                discardUncommitted(file, inserted);
+            }
             throw new RuntimeException("Erreur lors de l'indexation du cours: " + e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Après l'échec d'une indexation : le fichier d'une version jamais validée ne doit pas être
+     * rouvert au prochain chargement, et les chunks restés en attente sont supprimés
+     * (s'il en reste, la prochaine indexation les reprend)
+     */
+    private void discardUncommitted(Path file, List<Long> inserted) {
+        if (file != null) {
+            deleteIndexFile(file);
+        }
+        if (!inserted.isEmpty()) {
+            try {
+                writeTransaction.execute(status -> {
+                    documentChunkRepository.deleteAllByIdInBatch(inserted);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                System.err.println(inserted.size() + " chunks en attente non supprimés : " + e.getMessage());
+            }
         }
     }
 
     /**
-     * Initialise le vector store pour un cours
+     * Écrit les chunks réutilisés des positions [from, upTo), depuis leur vecteur stocké,
+     * lu par pages d'identifiants ; les quasi-doublons n'ont pas de place dans l'index
      */
-    private void initializeVectorStore(Course course) {
+    private void appendKept(MappedVectorStore.Writer writer, ChunkMatchView[] kept, int[] representatives, int from, int upTo) {
+        List<Integer> positions = new ArrayList<>();
+        for (int i = from; i < upTo; i++) {
+            if (representatives[i] == i) {
+                positions.add(i);
+            }
+        }
+        for (int start = 0; start < positions.size(); start += KEPT_VECTORS_PAGE) {
+            List<Integer> page = positions.subList(start, Math.min(positions.size(), start + KEPT_VECTORS_PAGE));
+            Map<Long, ChunkVectorView> vectors = new HashMap<>(page.size() * 2);
+            for (ChunkVectorView chunk : documentChunkRepository.findVectorsByIdIn(
+                    page.stream().map(i -> kept[i].getId()).collect(Collectors.toList()))) {
+                vectors.put(chunk.getId(), chunk);
+            }
+            for (int i : page) {
+                ChunkVectorView chunk = vectors.get(kept[i].getId());
+                if (chunk == null) {
+                    throw new IllegalStateException("Chunk " + kept[i].getId() + " supprimé pendant la réindexation");
+                }
+                writer.append(chunk.getId(), i, chunk.getContent(), EmbeddingCodec.decode(chunk.getEmbedding()));
+            }
+        }
+    }
+
+    /**
+     * Empreintes des chunks enregistrés avant l'ajout de content_hash : calculées une fois
+     * depuis leur contenu et enregistrées
+     */
+    private Map<Long, String> legacyContentHashes(Course course) {
+        Map<Long, String> hashes = new HashMap<>();
+        for (ChunkView chunk : documentChunkRepository.findByCourseAndContentHashIsNull(course)) {
+            hashes.put(chunk.getId(), HashUtils.sha256(chunk.getContent()));
+        }
+        if (!hashes.isEmpty()) {
+            writeTransaction.execute(status -> {
+                documentChunkBatchRepository.updateContentHashes(hashes);
+                return null;
+            });
+        }
+        return hashes;
+    }
+
+    /**
+     * Position du représentant de chaque chunk (la sienne s'il n'est pas un quasi-doublon)
+     */
+    private int[] findRepresentatives(List<String> chunks) {
+        if (!dedupEnabled) {
+            return IntStream.range(0, chunks.size()).toArray();
+        }
+        long start = System.nanoTime();
+        int[] representatives = nearDuplicateDetector.representatives(chunks);
+        long duplicates = IntStream.range(0, chunks.size()).filter(i -> representatives[i] != i).count();
+        if (duplicates > 0) {
+            System.out.println("🧬 " + duplicates + " quasi-doublons détectés sur " + chunks.size() + " chunks en "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        return representatives;
+    }
+
+    /**
+     * Enregistre les quasi-doublons : le texte est conservé (réindexation incrémentale),
+     * sans vecteur, avec l'identifiant du chunk qui le représente dans l'index
+     */
+    private void linkDuplicates(Course course, List<String> chunks, String[] hashes, int[] representatives,
+                                ChunkMatchView[] kept, List<Integer> newDuplicates, long[] chunkIds) {
+        Map<Long, Long> relinked = new HashMap<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            if (representatives[i] != i && kept[i] != null) {
+                Long representativeId = chunkIds[representatives[i]];
+                if (!representativeId.equals(kept[i].getDuplicateOf())) {
+                    relinked.put(kept[i].getId(), representativeId);
+                }
+            }
+        }
+        documentChunkBatchRepository.updateDuplicateOf(relinked);
+        List<DocumentChunk> rows = new ArrayList<>(newDuplicates.size());
+        for (int i : newDuplicates) {
+            DocumentChunk chunk = new DocumentChunk();
+            chunk.setCourse(course);
+            chunk.setContent(chunks.get(i));
+            chunk.setContentHash(hashes[i]);
+            chunk.setChunkIndex(i);
+            chunk.setIndexed(false);
+            chunk.setDuplicateOf(chunkIds[representatives[i]]);
+            rows.add(chunk);
+        }
+        documentChunkBatchRepository.insertAll(rows);
+    }
+
+    /**
+     * Renvoie l'instantané courant de l'index d'un cours, en le chargeant une seule fois
+     * même si plusieurs requêtes arrivent en même temps sur un cours froid
+     */
+    public CourseIndexSnapshot getSnapshot(Course course) {
+        CourseIndexSnapshot snapshot = snapshots.get(course.getId());
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        CompletableFuture<CourseIndexSnapshot> load = new CompletableFuture<>();
+        CompletableFuture<CourseIndexSnapshot> pending = pendingLoads.putIfAbsent(course.getId(), load);
+        if (pending != null) {
+            System.out.println("⏳ Chargement de l'index du cours " + course.getId() + " déjà en cours, attente...");
+            try {
+                return pending.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
         try {
-            // Créer un SimpleVectorStore avec le modèle d'embedding
-            SimpleVectorStore vectorStore = SimpleVectorStore.builder(embeddingModel).build();
-            
-            List<DocumentChunk> chunks = documentChunkRepository.findByCourseAndIndexedTrue(course);
-            
-            if (chunks.isEmpty()) {
+            CourseIndexSnapshot loaded = initializeVectorStore(course);
+            load.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            pendingLoads.remove(course.getId(), load);
+        }
+    }
+
+    /**
+     * Initialise le vector store pour un cours à partir des vecteurs persistés
+     */
+    private CourseIndexSnapshot initializeVectorStore(Course course) {
+        ReentrantLock lock = buildLock(course.getId());
+        lock.lock();
+        try {
+            // Une réindexation a pu publier un index pendant l'attente du verrou
+            CourseIndexSnapshot current = snapshots.peek(course.getId());
+            if (current != null) {
+                return current;
+            }
+
+            // Réutiliser l'index sur disque s'il est à jour : aucune lecture de vecteurs en base
+            CourseIndexSnapshot existing = openExistingIndex(course);
+            if (existing != null) {
+                publish(existing, course.isPublished());
+                System.out.println("✅ Index projeté en mémoire pour le cours " + course.getId() + " (" + existing.size() + " vecteurs)");
+                return existing;
+            }
+
+            long count = documentChunkRepository.countByCourseAndIndexedTrue(course);
+
+            if (count == 0) {
                 System.out.println("⚠️ Aucun chunk trouvé pour le cours " + course.getId());
-                return;
+                return null;
             }
-            
-            // Créer les documents pour le vector store
-            List<Document> documents = chunks.stream()
-                    .map(chunk -> {
-                        Map<String, Object> metadata = new HashMap<>();
-                        metadata.put("courseId", course.getId());
-                        metadata.put("chunkIndex", chunk.getChunkIndex());
-                        metadata.put("chunkId", chunk.getId());
-
-                        // ✅ API correcte Spring AI
-                        return new Document(chunk.getContent(), metadata);
-                    })
-                    .collect(Collectors.toList());
 
-            
-            System.out.println("📝 Ajout de " + documents.size() + " documents au vector store...");
-            
-            // Ajouter tous les documents au vector store
-            vectorStore.add(documents);
-            
-            // Mettre en cache
-            vectorStoreCache.put(course.getId(), vectorStore);
-            
+            // Recalculer uniquement les vecteurs absents ou produits par un autre modèle (sélectionnés en SQL)
+            List<ChunkView> stale = documentChunkRepository.findStaleByCourse(course, embeddingModelVersion);
+
+            if (!stale.isEmpty()) {
+                System.out.println("🧮 Calcul de " + stale.size() + " embeddings manquants...");
+                List<float[]> embeddings = embeddingPipeline.embedAll(
+                        stale.stream().map(ChunkView::getContent).collect(Collectors.toList()));
+                for (int i = 0; i < stale.size(); i++) {
+                    documentChunkRepository.updateEmbedding(stale.get(i).getId(),
+                            EmbeddingCodec.encode(embeddings.get(i), embeddingStorageFormat), embeddingModelVersion);
+                }
+            }
+
+            System.out.println("📝 Chargement de " + count + " vecteurs (" + (count - stale.size()) + " relus depuis la base)...");
+
+            // Construire et publier l'instantané
+            CourseIndexSnapshot snapshot = buildSnapshot(course, (int) count);
+            publish(snapshot, course.isPublished());
+
             System.out.println("✅ Vector store initialisé pour le cours " + course.getId());
+            return snapshot;
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("Erreur lors de l'initialisation du vector store: " + e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Écrit une nouvelle version de l'index du cours puis la projette en mémoire,
+     * sans aucune inférence. Les chunks sont lus en flux depuis la base (projection
+     * sans le cours) et écrits au fil de l'eau : seul le chunk courant est en mémoire.
+     * Appelé sous le verrou de construction du cours.
+     */
+    private CourseIndexSnapshot buildSnapshot(Course course, int count) {
+        long version = nextVersion(course.getId());
+        Path file = indexFile(course.getId(), version);
+        try (MappedVectorStore.Writer writer = MappedVectorStore.writer(file, course.getId(), embeddingModelVersion, count, indexQuantization);
+             Stream<ChunkVectorView> chunks = documentChunkRepository.streamIndexedByCourse(course)) {
+            chunks.forEach(chunk -> writer.append(chunk.getId(), chunk.getChunkIndex(), chunk.getContent(),
+                    EmbeddingCodec.decode(chunk.getEmbedding())));
+            writer.finish();
+        }
+        return new CourseIndexSnapshot(course.getId(), version, MappedVectorStore.open(embeddingModel, file, rescoreFactor));
+    }
+
+    /**
+     * Publie l'index d'un contenu modifié et le signale (quiz pré-générés à jeter)
+     */
+    private void publishReindexed(CourseIndexSnapshot snapshot, boolean published) {
+        publish(snapshot, published);
+        eventPublisher.publishEvent(new CourseReindexedEvent(snapshot.courseId(), snapshot.version()));
+    }
+
+    /**
+     * Substitue atomiquement l'instantané d'un cours si sa version est plus récente ;
+     * seuls les cours publiés figurent dans l'index HNSW global
+     */
+    private void publish(CourseIndexSnapshot snapshot, boolean published) {
+        if (!snapshots.putIfNewer(snapshot)) {
+            return;
+        }
+        searchCache.invalidateCourse(snapshot.courseId());
+        if (published) {
+            globalVectorIndexService.onCourseIndexed(snapshot.courseId(), snapshot.store());
+        }
+        deleteOlderIndexFiles(snapshot.courseId(), snapshot.version());
+    }
+
+    /**
+     * Ouvre la dernière version de l'index sur disque si elle correspond au modèle courant
+     * et aux chunks en base : mêmes identifiants de chunks indexés, pas seulement le même nombre
+     */
+    private CourseIndexSnapshot openExistingIndex(Course course) {
+        long version = latestFileVersion(course.getId());
+        if (version == 0) {
+            return null;
+        }
+        try {
+            MappedVectorStore store = MappedVectorStore.open(embeddingModel, indexFile(course.getId(), version), rescoreFactor);
+            if (embeddingModelVersion.equals(store.getModelTag())
+                    && store.getQuantization() == indexQuantization
+                    // Les quasi-doublons (indexed=false) ne sont pas dans le fichier
+                    && hasSameChunks(store, documentChunkRepository.findIndexedIdsByCourse(course))) {
+                return new CourseIndexSnapshot(course.getId(), version, store);
+            }
+            System.out.println("♻️ Index obsolète pour le cours " + course.getId() + ", reconstruction...");
+        } catch (Exception e) {
+            System.err.println("Index illisible pour le cours " + course.getId() + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Le fichier référence exactement les chunks indexés en base (identifiants triés)
+     */
+    private static boolean hasSameChunks(MappedVectorStore store, List<Long> indexedIds) {
+        if (store.size() != indexedIds.size()) {
+            return false;
+        }
+        long[] fileIds = new long[store.size()];
+        for (int i = 0; i < fileIds.length; i++) {
+            fileIds[i] = store.chunkId(i);
+        }
+        Arrays.sort(fileIds);
+        for (int i = 0; i < fileIds.length; i++) {
+            if (fileIds[i] != indexedIds.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long nextVersion(Long courseId) {
+        CourseIndexSnapshot current = snapshots.peek(courseId);
+        long currentVersion = current == null ? 0 : current.version();
+        return Math.max(currentVersion, latestFileVersion(courseId)) + 1;
+    }
+
+    private long latestFileVersion(Long courseId) {
+        return indexFileVersions(courseId).max().orElse(0);
+    }
+
+    private LongStream indexFileVersions(Long courseId) {
+        Path directory = Paths.get(indexDirectory);
+        if (!Files.isDirectory(directory)) {
+            return LongStream.empty();
+        }
+        String prefix = "course-" + courseId + "-v";
+        try (Stream<Path> files = Files.list(directory)) {
+            long[] versions = files
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(".vec"))
+                    .mapToLong(name -> Long.parseLong(name.substring(prefix.length(), name.length() - 4)))
+                    .toArray();
+            return Arrays.stream(versions);
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Lecture du répertoire d'index impossible : " + e.getMessage());
+            return LongStream.empty();
         }
     }
 
     /**
-     * Recherche les passages pertinents dans un cours
+     * Supprime les anciennes versions (une projection encore ouverte reste valide sous Unix)
+     */
+    private void deleteOlderIndexFiles(Long courseId, long keptVersion) {
+        indexFileVersions(courseId)
+                .filter(version -> version < keptVersion)
+                .forEach(version -> {
+                    try {
+                        Files.deleteIfExists(indexFile(courseId, version));
+                    } catch (IOException e) {
+                        System.err.println("Ancien index non supprimé (" + e.getMessage() + "), nouvel essai au prochain nettoyage");
+                    }
+                });
+    }
+
+    private void deleteIndexFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Index non validé " + file + " non supprimé : " + e.getMessage());
+        }
+    }
+
+    private Path indexFile(Long courseId, long version) {
+        return Paths.get(indexDirectory, "course-" + courseId + "-v" + version + ".vec");
+    }
+
+    private boolean hasIndexFile(Long courseId) {
+        return snapshots.peek(courseId) != null || latestFileVersion(courseId) > 0;
+    }
+
+    private ReentrantLock buildLock(Long courseId) {
+        return buildLocks.computeIfAbsent(courseId, id -> new ReentrantLock());
+    }
+
+    private boolean hasCurrentEmbedding(ChunkMatchView chunk) {
+        // Le modèle n'est projeté que pour un chunk qui a un vecteur
+        return embeddingModelVersion.equals(chunk.getEmbeddingModel());
+    }
+
+    /**
+     * Recherche les passages pertinents dans un cours.
+     *
+     * Les classements BM25 (termes exacts : noms d'API, formules) et vectoriel
+     * (sens) sont fusionnés par rang réciproque. Une courte requête de mots-clés
+     * dont tous les termes figurent dans le cours est servie par BM25 seul,
+     * sans appel au modèle d'embedding.
+     *
+     * Les résultats sont mis en cache par (cours, version de l'index, requête
+     * normalisée, topK) : une question déjà posée dans le cours ne coûte ni
+     * embedding ni parcours de l'index.
      */
     public List<String> searchRelevantContent(Course course, String query, int topK) {
-        VectorStore vectorStore = vectorStoreCache.get(course.getId());
-        
-        if (vectorStore == null) {
-            System.out.println("🔄 Vector store non trouvé en cache, initialisation...");
-            initializeVectorStore(course);
-            vectorStore = vectorStoreCache.get(course.getId());
+        CourseIndexSnapshot snapshot = getSnapshot(course);
+        if (snapshot == null || topK <= 0) {
+            return Collections.emptyList();
+        }
+        SearchResultCache.Key key = new SearchResultCache.Key(course.getId(), snapshot.version(),
+                SearchResultCache.normalizeQuery(query), topK);
+        List<String> cached = searchCache.get(key);
+        if (cached != null) {
+            return new ArrayList<>(cached);
         }
 
         try {
-            // Créer une requête de recherche avec le builder
-            SearchRequest searchRequest = SearchRequest.builder()
-                    .query(query)
-                    .topK(topK)
-                    .build();
-
-            // Effectuer la recherche
-            List<Document> results = vectorStore.similaritySearch(searchRequest);
-            
-            // Extraire le contenu des documents
-            return results.stream()
-                    .map(doc -> doc.getText())
-                    .collect(Collectors.toList());
+            long start = System.nanoTime();
+            RankedContent ranked = rankRelevantContent(snapshot, query, topK);
+            searchCache.put(key, ranked.texts(), ranked.embedded(), System.nanoTime() - start);
+            return ranked.texts();
         } catch (Exception e) {
             e.printStackTrace();
             System.err.println("Erreur lors de la recherche dans le vector store: " + e.getMessage());
@@ -141,66 +814,266 @@ public class RAGService {
         }
     }
 
+    private record RankedContent(List<String> texts, boolean embedded) {
+    }
+
+    private RankedContent rankRelevantContent(CourseIndexSnapshot snapshot, String query, int topK) {
+        MappedVectorStore vectorStore = snapshot.store();
+        LexicalIndex lexicalIndex = snapshot.lexical();
+        if (!hybridSearch) {
+            return new RankedContent(toTexts(vectorStore, vectorStore.search(embeddingModel.embed(query), topK, 0.0, null)), true);
+        }
+
+        List<String> terms = TextTokenizer.queryTerms(query);
+        if (isKeywordQuery(query, terms) && lexicalIndex.containsAll(terms)) {
+            return new RankedContent(toTexts(vectorStore, lexicalIndex.search(terms, topK, null)), false);
+        }
+
+        int candidates = topK * Math.max(1, searchCandidatesFactor);
+        int[] lexical = lexicalIndex.search(terms, candidates, null);
+        int[] semantic = vectorStore.search(embeddingModel.embed(query), candidates, 0.0, null);
+        return new RankedContent(toTexts(vectorStore, RankFusion.reciprocalRank(rrfK, topK, semantic, lexical)), true);
+    }
+
     /**
-     * Récupère tout le contexte d'un cours pour la génération de quiz
+     * Quelques mots-clés, pas une question en langage naturel
      */
-    public String getCourseContext(Course course, int maxChunks) {
-        List<DocumentChunk> chunks = documentChunkRepository.findByCourseAndIndexedTrue(course);
-        
-        if (chunks.isEmpty()) {
-            System.out.println("⚠️ Aucun chunk indexé trouvé, indexation du cours...");
-            // Si pas encore indexé, indexer maintenant
-            indexCourse(course);
-            chunks = documentChunkRepository.findByCourseAndIndexedTrue(course);
+    private boolean isKeywordQuery(String query, List<String> terms) {
+        if (terms.isEmpty() || query.indexOf('?') >= 0) {
+            return false;
         }
+        String[] words = query.trim().split("\\s+");
+        return words.length <= keywordMaxTerms;
+    }
 
-        String context = chunks.stream()
-                .limit(maxChunks)
-                .map(DocumentChunk::getContent)
-                .collect(Collectors.joining("\n\n"));
-        
-        System.out.println("📚 Contexte récupéré : " + chunks.size() + " chunks (limité à " + maxChunks + ")");
-        
-        return context;
+    private static List<String> toTexts(MappedVectorStore store, int[] positions) {
+        List<String> texts = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            texts.add(store.text(position));
+        }
+        return texts;
     }
 
     /**
-     * Découpe un texte en chunks de taille donnée
+     * Le cours est publié : ses vecteurs rejoignent l'index HNSW global.
+     *
+     * Les trois méthodes on* sont appelées après le commit de CourseService : la
+     * transaction d'origine est déjà validée, d'où REQUIRES_NEW (le chargement de
+     * l'index peut écrire des embeddings recalculés)
      */
-    private List<String> splitIntoChunks(String text, int chunkSize) {
-        List<String> chunks = new ArrayList<>();
-        
-        // Nettoyer le texte
-        text = text.replaceAll("\\r\\n", "\n").replaceAll("\\r", "\n");
-        
-        // Découper par phrases
-        String[] sentences = text.split("(?<=[.!?])\\s+");
-        
-        StringBuilder currentChunk = new StringBuilder();
-        
-        for (String sentence : sentences) {
-            if (currentChunk.length() + sentence.length() > chunkSize && currentChunk.length() > 0) {
-                chunks.add(currentChunk.toString().trim());
-                currentChunk = new StringBuilder();
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onCoursePublished(Course course) {
+        if (documentChunkRepository.countByCourseAndIndexedTrue(course) == 0) {
+            return; // indexé plus tard, publié dans l'index à ce moment-là
+        }
+        CourseIndexSnapshot snapshot = getSnapshot(course);
+        if (snapshot != null) {
+            globalVectorIndexService.onCourseIndexed(course.getId(), snapshot.store());
+        }
+    }
+
+    /**
+     * Le cours est dépublié : ses vecteurs ne sortent plus de la recherche multi-cours
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onCourseUnpublished(Long courseId) {
+        globalVectorIndexService.onCourseRemoved(courseId);
+    }
+
+    /**
+     * Le cours est supprimé (après commit) : instantané, fichiers d'index, résultats de
+     * recherche en cache et vecteurs de l'index HNSW global sont retirés, puis la
+     * suppression est signalée (quiz pré-générés à jeter)
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onCourseDeleted(Long courseId) {
+        ReentrantLock lock = buildLock(courseId);
+        lock.lock();
+        try {
+            snapshots.invalidate(courseId);
+            searchCache.invalidateCourse(courseId);
+            globalVectorIndexService.onCourseRemoved(courseId);
+            // Une projection encore ouverte par une recherche en cours reste valide sous Unix
+            deleteOlderIndexFiles(courseId, Long.MAX_VALUE);
+        } finally {
+            lock.unlock();
+            buildLocks.remove(courseId, lock);
+        }
+        eventPublisher.publishEvent(new CourseDeletedEvent(courseId));
+        System.out.println("🗑️ Index du cours " + courseId + " supprimé");
+    }
+
+    public record ScoredPassage(Long courseId, long chunkId, int chunkIndex, String content, float score) {
+    }
+
+    /**
+     * Recherche vectorielle dans un cours avec un vecteur de requête déjà calculé.
+     *
+     * Les scores sont des similarités cosinus, comparables d'un cours à l'autre :
+     * c'est ce qui permet de fusionner les résultats de plusieurs cours (le score
+     * de la fusion hybride, fondé sur les rangs, ne l'est pas).
+     */
+    public List<ScoredPassage> searchScored(Course course, float[] queryVector, int topK) {
+        CourseIndexSnapshot snapshot = getSnapshot(course);
+        if (snapshot == null || topK <= 0) {
+            return Collections.emptyList();
+        }
+        MappedVectorStore store = snapshot.store();
+        float[] scores = new float[topK];
+        int[] positions = store.search(queryVector, topK, 0.0, scores);
+        List<ScoredPassage> passages = new ArrayList<>(positions.length);
+        for (int i = 0; i < positions.length; i++) {
+            passages.add(new ScoredPassage(course.getId(), store.chunkId(positions[i]), store.chunkIndex(positions[i]),
+                    store.text(positions[i]), scores[i]));
+        }
+        return passages;
+    }
+
+    /**
+     * Assemble le contexte d'un cours pour la génération de quiz, dans le budget de tokens.
+     *
+     * Les chunks sont choisis par pertinence au thème du cours (titre et description)
+     * et par diversité (MMR) sur tout le cours, puis rendus dans l'ordre du cours :
+     * les questions ne portent plus seulement sur son début.
+     *
+     * Hors transaction : seul le chargement de l'index en ouvre une, courte ; l'embedding
+     * du thème est calculé sans connexion tenue. Un cours jamais indexé n'est pas vectorisé
+     * ici : son indexation part en arrière-plan et le contexte est pris au début du cours.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String getCourseContext(Course course) {
+        // Tous les chunks, doublons compris : un cours découpé a toujours au moins un représentant
+        if (documentChunkRepository.countByCourse(course) == 0) {
+            System.out.println("⚠️ Cours " + course.getId() + " pas encore indexé : indexation planifiée, contexte pris au début du cours");
+            eventPublisher.publishEvent(new CourseIndexRequestedEvent(course.getId()));
+            return leadingContent(course);
+        }
+        CourseIndexSnapshot snapshot;
+        float[] theme;
+        try {
+            snapshot = writeTransaction.execute(status -> getSnapshot(course));
+            theme = embeddingModel.embed(course.getTitle() + (course.getDescription() == null ? "" : ". " + course.getDescription()));
+        } catch (RuntimeException e) {
+            System.err.println("Index indisponible pour le cours " + course.getId() + ", contexte pris au début du cours : " + e.getMessage());
+            return leadingContext(course);
+        }
+        if (snapshot == null || snapshot.size() == 0) {
+            // Première indexation pas encore validée : aucun chunk indexé en base
+            return leadingContent(course);
+        }
+        MappedVectorStore store = snapshot.store();
+
+        ContextAssembler.Selection selection = contextAssembler.select(store, theme);
+
+        StringBuilder context = new StringBuilder();
+        for (int position : selection.positions()) {
+            if (context.length() > 0) {
+                context.append("\n\n");
             }
-            currentChunk.append(sentence).append(" ");
+            context.append(store.text(position));
         }
-        
-        if (currentChunk.length() > 0) {
-            chunks.add(currentChunk.toString().trim());
+
+        System.out.println("📚 Contexte assemblé : " + selection.positions().length + " chunks sur " + store.size()
+                + ", ~" + selection.estimatedTokens() + " tokens (budget " + contextAssembler.getMaxTokens() + ")");
+
+        return context.toString();
+    }
+
+    /**
+     * Contexte de secours sans index : premiers chunks du cours dans le budget,
+     * limités et projetés en SQL (ni le cours ni les vecteurs ne sont chargés)
+     */
+    private String leadingContext(Course course) {
+        int limit = Math.max(1, 2 * contextMaxTokens / chunkMaxTokens);
+        return withinBudget(documentChunkRepository.findByCourseAndIndexedTrueOrderByChunkIndexAsc(course, PageRequest.of(0, limit))
+                .stream().map(ChunkView::getContent).collect(Collectors.toList()));
+    }
+
+    /**
+     * Contexte d'un cours sans chunk indexé en base : premiers chunks de son contenu,
+     * découpés à la volée (ni lecture de chunks ni embedding)
+     */
+    private String leadingContent(Course course) {
+        return withinBudget(sentenceChunker.split(course.getContent()));
+    }
+
+    private String withinBudget(List<String> chunks) {
+        StringBuilder context = new StringBuilder();
+        int tokens = 0;
+        for (String chunk : chunks) {
+            int chunkTokens = contextAssembler.estimateTokens(chunk) + 1;
+            if (tokens + chunkTokens > contextAssembler.getMaxTokens()) {
+                break;
+            }
+            if (context.length() > 0) {
+                context.append("\n\n");
+            }
+            context.append(chunk);
+            tokens += chunkTokens;
+        }
+        return context.toString();
+    }
+
+    /**
+     * Mesure, sur l'index d'un cours, la mémoire et le rappel@K de chaque mode de
+     * quantification par rapport à la recherche exacte. Les requêtes sont la
+     * requête donnée (si présente) et un échantillon de chunks du cours.
+     */
+    public List<QuantizationReport.Row> getQuantizationReport(Course course, String query, int topK, int sampleSize) {
+        CourseIndexSnapshot snapshot = getSnapshot(course);
+        if (snapshot == null) {
+            return Collections.emptyList();
+        }
+        MappedVectorStore store = snapshot.store();
+        List<float[]> queries = new ArrayList<>();
+        if (query != null && !query.isBlank()) {
+            queries.add(embeddingModel.embed(query));
         }
-        
-        if (chunks.isEmpty() && !text.trim().isEmpty()) {
-            chunks.add(text.trim());
+        int step = Math.max(1, store.size() / Math.max(1, sampleSize));
+        for (int i = 0; i < store.size() && queries.size() < sampleSize; i += step) {
+            queries.add(store.vector(i, new float[store.getDimensions()]));
         }
-        
-        System.out.println("✂️ Texte découpé en " + chunks.size() + " chunks");
-        
-        return chunks;
+        List<QuantizationReport.Row> rows = QuantizationReport.evaluate(store, queries, topK, rescoreFactor);
+        rows.forEach(row -> System.out.println("📐 " + row.quantization() + " : " + row.vectorBytes() + " o de vecteurs ("
+                + Math.round(row.memorySaved() * 100) + " % économisés), rappel@" + topK + " " + row.recall()
+                + " après reclassement, " + row.averageMicros() + " µs/requête"));
+        return rows;
+    }
+
+    /**
+     * Statistiques du cache d'index (succès, échecs, évictions, octets résidents par cours)
+     */
+    public SnapshotCache.Stats getIndexCacheStats() {
+        return snapshots.stats();
+    }
+
+    /**
+     * Chunks d'un cours (doublons compris), dont quasi-doublons rattachés à un représentant
+     */
+    public record DedupStats(long chunks, long duplicates, double ratio) {
+    }
+
+    /**
+     * Part des chunks de chaque cours fusionnés avec un quasi-doublon, par identifiant de cours
+     */
+    public Map<Long, DedupStats> getDedupStats() {
+        Map<Long, DedupStats> stats = new HashMap<>();
+        for (CourseDedupView view : documentChunkRepository.countDuplicatesByCourse()) {
+            double ratio = view.getTotal() == 0 ? 0.0 : (double) view.getDuplicates() / view.getTotal();
+            stats.put(view.getCourseId(), new DedupStats(view.getTotal(), view.getDuplicates(), ratio));
+        }
+        return stats;
+    }
+
+    /**
+     * Statistiques du cache de résultats de recherche (taux de succès, embeddings et temps économisés)
+     */
+    public SearchResultCache.Stats getSearchCacheStats() {
+        return searchCache.stats();
     }
 
     /**
-     * Vérifie si un cours est indexé
+     * Vérifie si un cours est indexé (découpé en chunks, doublons compris)
      */
     public boolean isCourseIndexed(Course course) {
         long count = documentChunkRepository.countByCourse(course);
@@ -210,7 +1083,8 @@ public class RAGService {
     }
 
     /**
-     * Obtient le nombre de chunks pour un cours
+     * Obtient le nombre de chunks pour un cours, quasi-doublons compris
+     * (seuls les chunks indexed=true sont dans l'index vectoriel)
      */
     public long getChunkCount(Course course) {
         return documentChunkRepository.countByCourse(course);
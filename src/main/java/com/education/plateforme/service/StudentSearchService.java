@@ -0,0 +1,140 @@
+package com.education.plateforme.service;
+
+import com.education.plateforme.model.Course;
+import com.education.plateforme.model.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recherche sémantique d'un étudiant dans tous les cours où il est inscrit.
+ *
+ * La requête est vectorisée une seule fois, puis chaque cours est interrogé en
+ * parallèle ; les meilleurs passages sont fusionnés par similarité cosinus dans
+ * un tas borné à topK. Un cours dont l'index n'est pas chargé à l'échéance est
+ * ignoré : la réponse est partielle mais arrive à temps, et le chargement
+ * continue en arrière-plan pour la requête suivante.
+ *
+ * Pas de @Transactional ici : chaque cours est lu dans sa propre transaction
+ * via RAGService, sur un thread du pool.
+ */
+@Service
+public class StudentSearchService {
+
+    public record Hit(Long courseId, String courseTitle, int chunkIndex, String content, double score) {
+    }
+
+    public record SearchResult(String query, List<Hit> hits, int searchedCourses, List<Long> timedOutCourses,
+                               List<Long> failedCourses, boolean partial, long elapsedMillis) {
+    }
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private RAGService ragService;
+
+    @Autowired
+    private EmbeddingModel embeddingModel;
+
+    // Délai maximum d'une recherche, embedding de la requête compris
+    @Value("${rag.search.student.deadline-ms:800}")
+    private long deadlineMillis;
+
+    // Cours interrogés simultanément, toutes requêtes confondues
+    @Value("${rag.search.student.threads:8}")
+    private int threads;
+
+    // Nombre maximum de résultats renvoyés
+    @Value("${rag.search.student.max-top-k:50}")
+    private int maxTopK;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void initExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "student-search-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    public SearchResult search(User student, String query, int topK) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        int limit = Math.max(1, Math.min(topK, maxTopK));
+
+        List<Course> courses = courseService.getCoursesByStudent(student);
+        if (courses.isEmpty() || query == null || query.isBlank()) {
+            return new SearchResult(query, List.of(), 0, List.of(), List.of(), false, 0);
+        }
+        float[] queryVector = embeddingModel.embed(query);
+
+        Map<Course, CompletableFuture<List<RAGService.ScoredPassage>>> searches = new LinkedHashMap<>();
+        for (Course course : courses) {
+            searches.put(course, CompletableFuture.supplyAsync(
+                    () -> ragService.searchScored(course, queryVector, limit), executor));
+        }
+        try {
+            CompletableFuture.allOf(searches.values().toArray(new CompletableFuture[0]))
+                    .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Résultats partiels : chaque cours est examiné ci-dessous
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Tas des meilleurs résultats : le moins bon en tête, remplacé s'il est dépassé
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(Hit::score));
+        List<Long> timedOut = new ArrayList<>();
+        List<Long> failed = new ArrayList<>();
+        for (Map.Entry<Course, CompletableFuture<List<RAGService.ScoredPassage>>> entry : searches.entrySet()) {
+            Course course = entry.getKey();
+            CompletableFuture<List<RAGService.ScoredPassage>> future = entry.getValue();
+            if (!future.isDone()) {
+                timedOut.add(course.getId());
+                continue;
+            }
+            if (future.isCompletedExceptionally()) {
+                failed.add(course.getId());
+                continue;
+            }
+            for (RAGService.ScoredPassage passage : future.join()) {
+                if (best.size() < limit) {
+                    best.add(toHit(course, passage));
+                } else if (passage.score() > best.peek().score()) {
+                    best.poll();
+                    best.add(toHit(course, passage));
+                }
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(Comparator.comparingDouble(Hit::score).reversed());
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        if (!timedOut.isEmpty() || !failed.isEmpty()) {
+            System.out.println("⏱️ Recherche multi-cours partielle en " + elapsed + " ms : " + timedOut.size()
+                    + " cours hors délai, " + failed.size() + " en échec sur " + courses.size());
+        }
+        return new SearchResult(query, hits, courses.size() - timedOut.size() - failed.size(),
+                timedOut, failed, !timedOut.isEmpty() || !failed.isEmpty(), elapsed);
+    }
+
+    private static Hit toHit(Course course, RAGService.ScoredPassage passage) {
+        return new Hit(course.getId(), course.getTitle(), passage.chunkIndex(), passage.content(), passage.score());
+    }
+}
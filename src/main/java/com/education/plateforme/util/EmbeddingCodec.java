@@ -0,0 +1,132 @@
+package com.education.plateforme.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Encodage binaire compact des vecteurs d'embedding stockés dans DocumentChunk.
+ *
+ * Format : 1 octet de format, 2 octets de dimension (non signé), puis les
+ * composantes en little-endian (float32 ou float16).
+ */
+public class EmbeddingCodec {
+
+    public enum Format {
+        FLOAT32((byte) 1, 4),
+        FLOAT16((byte) 2, 2);
+
+        private final byte code;
+        private final int bytesPerValue;
+
+        Format(byte code, int bytesPerValue) {
+            this.code = code;
+            this.bytesPerValue = bytesPerValue;
+        }
+
+        static Format fromCode(byte code) {
+            for (Format format : values()) {
+                if (format.code == code) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Format d'embedding inconnu : " + code);
+        }
+    }
+
+    private static final int HEADER_SIZE = 3;
+
+    private EmbeddingCodec() {
+        // empêche l'instanciation
+    }
+
+    public static byte[] encode(float[] vector, Format format) {
+        if (vector.length > 0xFFFF) {
+            throw new IllegalArgumentException("Dimension trop grande : " + vector.length);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + vector.length * format.bytesPerValue)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(format.code);
+        buffer.putShort((short) vector.length);
+        if (format == Format.FLOAT32) {
+            for (float value : vector) {
+                buffer.putFloat(value);
+            }
+        } else {
+            for (float value : vector) {
+                buffer.putShort(floatToHalf(value));
+            }
+        }
+        return buffer.array();
+    }
+
+    public static float[] decode(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        Format format = Format.fromCode(buffer.get());
+        int dimensions = buffer.getShort() & 0xFFFF;
+        if (data.length != HEADER_SIZE + dimensions * format.bytesPerValue) {
+            throw new IllegalArgumentException("Embedding tronqué : " + data.length + " octets pour " + dimensions + " dimensions");
+        }
+        float[] vector = new float[dimensions];
+        if (format == Format.FLOAT32) {
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] = buffer.getFloat();
+            }
+        } else {
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] = halfToFloat(buffer.getShort());
+            }
+        }
+        return vector;
+    }
+
+    /**
+     * Conversion float32 -> float16 (IEEE 754 binary16, arrondi au plus proche).
+     */
+    static short floatToHalf(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int magnitude = bits & 0x7fffffff;
+        int rounded = magnitude + 0x1000;
+
+        if (rounded >= 0x47800000) {
+            if (magnitude >= 0x47800000) {
+                if (magnitude < 0x7f800000) {
+                    return (short) (sign | 0x7c00); // dépassement -> infini
+                }
+                return (short) (sign | 0x7c00 | ((bits & 0x007fffff) >>> 13)); // NaN / infini
+            }
+            return (short) (sign | 0x7bff); // plus grande valeur finie
+        }
+        if (rounded >= 0x38800000) {
+            return (short) (sign | ((rounded - 0x38000000) >>> 13)); // valeur normale
+        }
+        if (rounded < 0x33000000) {
+            return (short) sign; // trop petit -> zéro
+        }
+        int exponent = magnitude >>> 23; // valeur sous-normale
+        return (short) (sign | ((((bits & 0x7fffff) | 0x800000) + (0x800000 >>> (exponent - 102))) >>> (126 - exponent)));
+    }
+
+    /**
+     * Conversion float16 -> float32.
+     */
+    static float halfToFloat(short half) {
+        int bits = half & 0xffff;
+        int mantissa = bits & 0x03ff;
+        int exponent = bits & 0x7c00;
+
+        if (exponent == 0x7c00) {
+            exponent = 0x3fc00; // NaN / infini
+        } else if (exponent != 0) {
+            exponent += 0x1c000; // valeur normale
+        } else if (mantissa != 0) {
+            exponent = 0x1c400; // valeur sous-normale -> normalisation
+            do {
+                mantissa <<= 1;
+                exponent -= 0x400;
+            } while ((mantissa & 0x400) == 0);
+            mantissa &= 0x3ff;
+        }
+        return Float.intBitsToFloat((bits & 0x8000) << 16 | (exponent | mantissa) << 13);
+    }
+}
@@ -0,0 +1,89 @@
+package com.education.plateforme.util;
+
+import java.util.function.Consumer;
+
+/**
+ * Découpe au fil de l'eau un tableau JSON reçu par morceaux (réponse du modèle
+ * en streaming) et transmet chaque élément dès qu'il est complet.
+ *
+ * Le parseur ne construit aucun arbre : il suit seulement la profondeur des
+ * accolades et crochets, en ignorant ceux qui figurent dans les chaînes. Tout
+ * ce qui précède le premier '[' (balises markdown ```json, texte d'introduction)
+ * est ignoré, de même que tout ce qui suit le ']' final. Chaque élément transmis
+ * est le texte JSON d'un objet (ou d'un tableau), à désérialiser par l'appelant.
+ */
+public class JsonArrayStreamParser {
+
+    private final Consumer<String> onElement;
+    private final StringBuilder element = new StringBuilder();
+
+    private boolean started = false;
+    private boolean finished = false;
+    private int depth = 0;
+    private boolean inString = false;
+    private boolean escaped = false;
+    private int emitted = 0;
+
+    public JsonArrayStreamParser(Consumer<String> onElement) {
+        this.onElement = onElement;
+    }
+
+    /**
+     * Ajoute un morceau de texte ; les éléments qu'il termine sont transmis aussitôt
+     */
+    public void feed(CharSequence chunk) {
+        if (chunk == null) {
+            return;
+        }
+        for (int i = 0; i < chunk.length() && !finished; i++) {
+            accept(chunk.charAt(i));
+        }
+    }
+
+    private void accept(char c) {
+        if (!started) {
+            started = c == '[';
+            return;
+        }
+        if (depth == 0) {
+            // Entre deux éléments : virgules et blancs ignorés
+            if (c == '{' || c == '[') {
+                element.append(c);
+                depth = 1;
+            } else if (c == ']') {
+                finished = true;
+            }
+            return;
+        }
+        element.append(c);
+        if (inString) {
+            if (escaped) {
+                escaped = false;
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == '"') {
+                inString = false;
+            }
+        } else if (c == '"') {
+            inString = true;
+        } else if (c == '{' || c == '[') {
+            depth++;
+        } else if ((c == '}' || c == ']') && --depth == 0) {
+            String json = element.toString();
+            element.setLength(0);
+            emitted++;
+            onElement.accept(json);
+        }
+    }
+
+    /**
+     * Vrai une fois le ']' fermant le tableau reçu
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public int getEmitted() {
+        return emitted;
+    }
+}